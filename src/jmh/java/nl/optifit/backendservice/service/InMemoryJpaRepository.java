@@ -0,0 +1,188 @@
+package nl.optifit.backendservice.service;
+
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Keeps the entities of a repository in a map, so the benchmarks run the service code against the repository methods
+ * it calls without a database. Sorting, paging and query by example need the database and are not supported.
+ */
+abstract class InMemoryJpaRepository<T, ID> implements JpaRepository<T, ID> {
+
+    protected final Map<Object, T> entities = new LinkedHashMap<>();
+
+    /**
+     * The key of the entity in the map, which is its primary key.
+     */
+    protected abstract Object idOf(T entity);
+
+    @Override
+    public <S extends T> S save(S entity) {
+        entities.put(idOf(entity), entity);
+        return entity;
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    @Override
+    public <S extends T> S saveAndFlush(S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public <S extends T> List<S> saveAllAndFlush(Iterable<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public Optional<T> findById(ID id) {
+        return Optional.ofNullable(entities.get(id));
+    }
+
+    @Override
+    public boolean existsById(ID id) {
+        return entities.containsKey(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return List.copyOf(entities.values());
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<ID> ids) {
+        List<T> found = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(found::add));
+        return found;
+    }
+
+    @Override
+    public long count() {
+        return entities.size();
+    }
+
+    @Override
+    public T getOne(ID id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    public T getById(ID id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    public T getReferenceById(ID id) {
+        return Objects.requireNonNull(entities.get(id), () -> "No entity with id " + id);
+    }
+
+    @Override
+    public void deleteById(ID id) {
+        entities.remove(id);
+    }
+
+    @Override
+    public void delete(T entity) {
+        entities.remove(idOf(entity));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends ID> ids) {
+        ids.forEach(entities::remove);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        entities.clear();
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<T> entities) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<ID> ids) {
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        throw unsupported();
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw unsupported();
+    }
+
+    protected static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Sorting, paging and query by example need the database");
+    }
+}
@@ -0,0 +1,124 @@
+package nl.optifit.backendservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.optifit.backendservice.concurrency.BulkheadProperties;
+import nl.optifit.backendservice.concurrency.Bulkheads;
+import nl.optifit.backendservice.dto.LeaderboardDto;
+import nl.optifit.backendservice.model.Account;
+import nl.optifit.backendservice.model.ExerciseType;
+import nl.optifit.backendservice.model.Leaderboard;
+import nl.optifit.backendservice.model.Session;
+import nl.optifit.backendservice.model.SessionStatus;
+import nl.optifit.backendservice.repository.LeaderboardRepository;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Wires {@link LeaderboardService} with in-memory repositories and messaging, so the benchmarks measure the service
+ * code rather than I/O.
+ */
+final class InMemoryLeaderboardFixtures {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Amsterdam");
+
+    private InMemoryLeaderboardFixtures() {
+    }
+
+    static Map<String, LeaderboardDto> leaderboardDtos(int count, long seed) {
+        Random random = new Random(seed);
+        Map<String, LeaderboardDto> leaderboards = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            int sessions = random.nextInt(90);
+            int completed = sessions == 0 ? 0 : random.nextInt(sessions + 1);
+            leaderboards.put(accountId(i), new LeaderboardDto(
+                    "User %06d".formatted(random.nextInt(count)),
+                    random.nextInt(sessions * 100 + 1),
+                    sessions == 0 ? 0 : (double) completed / sessions * 100,
+                    random.nextInt(completed + 1),
+                    completed,
+                    i == 0));
+        }
+        return leaderboards;
+    }
+
+    static Map<String, Leaderboard> leaderboards(int count) {
+        Map<String, Leaderboard> leaderboards = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String accountId = accountId(i);
+            leaderboards.put(accountId, Leaderboard.builder()
+                    .accountId(accountId)
+                    .account(Account.builder().id(accountId).build())
+                    .displayName("User %06d".formatted(i))
+                    .score(0)
+                    .completionRate(0.0)
+                    .currentStreak(0)
+                    .longestStreak(0)
+                    .recentWinner(false)
+                    .sessionsSinceReset(0)
+                    .completedSinceReset(0)
+                    .build());
+        }
+        return leaderboards;
+    }
+
+    /**
+     * Three sessions a day per account, roughly four in five of them completed within the hour.
+     */
+    static List<Session> sessionHistory(Collection<Leaderboard> leaderboards, int days, long seed) {
+        Random random = new Random(seed);
+        ZonedDateTime firstDay = ZonedDateTime.of(2025, 1, 6, 10, 0, 0, 0, ZONE);
+        List<Session> sessions = new ArrayList<>(leaderboards.size() * days * 3);
+        for (Leaderboard leaderboard : leaderboards) {
+            for (int day = 0; day < days; day++) {
+                for (int slot = 0; slot < 3; slot++) {
+                    ZonedDateTime start = firstDay.plusDays(day).plusHours(slot * 2L);
+                    boolean completed = random.nextInt(5) != 0;
+                    sessions.add(Session.builder()
+                            .account(leaderboard.getAccount())
+                            .sessionStart(start)
+                            .exerciseType(ExerciseType.values()[slot])
+                            .sessionStatus(completed ? SessionStatus.COMPLETED : SessionStatus.OVERDUE)
+                            .sessionExecutionTime(completed ? start.plusMinutes(random.nextInt(60)) : null)
+                            .build());
+                }
+            }
+        }
+        return sessions;
+    }
+
+    static LeaderboardService leaderboardService(Map<String, Leaderboard> leaderboards) {
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> true);
+        LeaderboardRankingIndex rankingIndex = new LeaderboardRankingIndex();
+        LeaderboardRepository leaderboardRepository = new InMemoryLeaderboardRepository(leaderboards.values());
+
+        return new LeaderboardService(
+                keycloakService(),
+                leaderboardRepository,
+                new InMemoryLeaderboardSnapshotRepository(leaderboardRepository),
+                rankingIndex,
+                new LeaderboardPublisher(messagingTemplate, rankingIndex),
+                new LeaderboardResponseCache(new SimpleMeterRegistry(), 256, Duration.ofSeconds(5)));
+    }
+
+    // Only reached when syncing display names; every fixture leaderboard has one, so the client never connects
+    private static KeycloakService keycloakService() {
+        Keycloak keycloak = Keycloak.getInstance("http://localhost:8080", "benchmark", "benchmark", "benchmark", "admin-cli");
+        KeycloakUserDirectory userDirectory = new KeycloakUserDirectory(new SimpleMeterRegistry(), 100, Duration.ofMinutes(5), Duration.ofHours(1));
+        return new KeycloakService(keycloak, new Bulkheads(new BulkheadProperties(), new SimpleMeterRegistry()), userDirectory,
+                Duration.ofMillis(10), 100, Duration.ofMinutes(1));
+    }
+
+    private static String accountId(int i) {
+        return "00000000-0000-0000-0000-%012d".formatted(i);
+    }
+}
@@ -0,0 +1,130 @@
+package nl.optifit.backendservice.service;
+
+import nl.optifit.backendservice.dto.LeaderboardWindowDto;
+import nl.optifit.backendservice.model.Leaderboard;
+import nl.optifit.backendservice.model.LeaderboardSortField;
+import nl.optifit.backendservice.repository.LeaderboardRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The leaderboards keyed by account id, with the queries of {@link LeaderboardRepository} evaluated over the map.
+ * Writes bump the row version like the database does.
+ */
+class InMemoryLeaderboardRepository extends InMemoryJpaRepository<Leaderboard, UUID> implements LeaderboardRepository {
+
+    InMemoryLeaderboardRepository(Collection<Leaderboard> leaderboards) {
+        leaderboards.forEach(leaderboard -> entities.put(leaderboard.getAccountId(), leaderboard));
+    }
+
+    @Override
+    protected Object idOf(Leaderboard leaderboard) {
+        return leaderboard.getAccountId();
+    }
+
+    @Override
+    public <S extends Leaderboard> S save(S leaderboard) {
+        bumpVersion(leaderboard);
+        return super.save(leaderboard);
+    }
+
+    @Override
+    public Optional<Leaderboard> findByAccountId(String accountId) {
+        return Optional.ofNullable(entities.get(accountId));
+    }
+
+    @Override
+    public Optional<Leaderboard> findByRecentWinnerTrue() {
+        return entities.values().stream()
+                .filter(leaderboard -> Boolean.TRUE.equals(leaderboard.getRecentWinner()))
+                .findFirst();
+    }
+
+    @Override
+    public List<Leaderboard> findAllByAccountIdIn(List<String> accountIds) {
+        return accountIds.stream()
+                .map(entities::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public String findState() {
+        long versions = entities.values().stream()
+                .map(Leaderboard::getVersion)
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .sum();
+        String lastUpdated = entities.values().stream()
+                .map(Leaderboard::getLastUpdated)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .map(LocalDateTime::toString)
+                .orElse("");
+        return "%d:%d:%s".formatted(entities.size(), versions, lastUpdated);
+    }
+
+    @Override
+    public List<String> findAccountIdsWithoutDisplayName() {
+        return entities.values().stream()
+                .filter(leaderboard -> leaderboard.getDisplayName() == null)
+                .map(Leaderboard::getAccountId)
+                .toList();
+    }
+
+    @Override
+    public Optional<String> findRandomTopScoringAccountId() {
+        Optional<Integer> topScore = entities.values().stream()
+                .map(Leaderboard::getScore)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder());
+        List<String> topScoring = entities.values().stream()
+                .filter(leaderboard -> Objects.equals(leaderboard.getScore(), topScore.orElse(null)))
+                .map(Leaderboard::getAccountId)
+                .toList();
+        return topScoring.isEmpty()
+                ? Optional.empty()
+                : Optional.of(topScoring.get(ThreadLocalRandom.current().nextInt(topScoring.size())));
+    }
+
+    @Override
+    public int resetAll(String winnerAccountId, LocalDateTime resetAt) {
+        entities.values().forEach(leaderboard -> {
+            leaderboard.setScore(0);
+            leaderboard.setSessionsSinceReset(0);
+            leaderboard.setCompletedSinceReset(0);
+            leaderboard.setRecentWinner(leaderboard.getAccountId().equals(winnerAccountId));
+            leaderboard.setResetAt(resetAt);
+            leaderboard.setLastUpdated(resetAt);
+            bumpVersion(leaderboard);
+        });
+        return entities.size();
+    }
+
+    @Override
+    public int updateDisplayName(String accountId, String displayName) {
+        Leaderboard leaderboard = entities.get(accountId);
+        if (leaderboard == null) {
+            return 0;
+        }
+        leaderboard.setDisplayName(displayName);
+        bumpVersion(leaderboard);
+        return 1;
+    }
+
+    @Override
+    public Optional<LeaderboardWindowDto> findWindowAroundAccount(String accountId, LeaderboardSortField sortField, boolean descending, int window) {
+        throw unsupported();
+    }
+
+    private static void bumpVersion(Leaderboard leaderboard) {
+        leaderboard.setVersion(leaderboard.getVersion() == null ? 0 : leaderboard.getVersion() + 1);
+    }
+}
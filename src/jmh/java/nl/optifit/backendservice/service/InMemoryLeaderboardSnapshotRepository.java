@@ -0,0 +1,67 @@
+package nl.optifit.backendservice.service;
+
+import nl.optifit.backendservice.model.Leaderboard;
+import nl.optifit.backendservice.model.LeaderboardSnapshot;
+import nl.optifit.backendservice.repository.LeaderboardRepository;
+import nl.optifit.backendservice.repository.LeaderboardSnapshotRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The leaderboard snapshots keyed by a generated id, snapshotting the leaderboards of the given repository.
+ */
+class InMemoryLeaderboardSnapshotRepository extends InMemoryJpaRepository<LeaderboardSnapshot, Long> implements LeaderboardSnapshotRepository {
+
+    private final LeaderboardRepository leaderboardRepository;
+    private final AtomicLong ids = new AtomicLong();
+
+    InMemoryLeaderboardSnapshotRepository(LeaderboardRepository leaderboardRepository) {
+        this.leaderboardRepository = leaderboardRepository;
+    }
+
+    @Override
+    protected Object idOf(LeaderboardSnapshot snapshot) {
+        return snapshot.getId();
+    }
+
+    @Override
+    public <S extends LeaderboardSnapshot> S save(S snapshot) {
+        if (snapshot.getId() == null) {
+            snapshot.setId(ids.incrementAndGet());
+        }
+        return super.save(snapshot);
+    }
+
+    @Override
+    public Page<LeaderboardSnapshot> findAllByPeriodEnd(Pageable pageable, LocalDateTime periodEnd) {
+        throw unsupported();
+    }
+
+    @Override
+    public Page<LeaderboardSnapshot> findAllByWinnerTrue(Pageable pageable) {
+        throw unsupported();
+    }
+
+    @Override
+    public int snapshotAll(LocalDateTime periodEnd, String winnerAccountId) {
+        int snapshots = 0;
+        for (Leaderboard leaderboard : leaderboardRepository.findAll()) {
+            save(LeaderboardSnapshot.builder()
+                    .periodStart(leaderboard.getResetAt())
+                    .periodEnd(periodEnd)
+                    .accountId(leaderboard.getAccountId())
+                    .displayName(leaderboard.getDisplayName())
+                    .score(leaderboard.getScore())
+                    .completionRate(leaderboard.getCompletionRate())
+                    .currentStreak(leaderboard.getCurrentStreak())
+                    .longestStreak(leaderboard.getLongestStreak())
+                    .winner(leaderboard.getAccountId().equals(winnerAccountId))
+                    .build());
+            snapshots++;
+        }
+        return snapshots;
+    }
+}
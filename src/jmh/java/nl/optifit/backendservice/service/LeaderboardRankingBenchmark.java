@@ -0,0 +1,106 @@
+package nl.optifit.backendservice.service;
+
+import nl.optifit.backendservice.dto.LeaderboardDto;
+import nl.optifit.backendservice.model.LeaderboardSortField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serving a leaderboard page from the resident ranking index with sorting the full list per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeaderboardRankingBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int leaderboards;
+
+    @Param({"score", "completionRate", "fullName"})
+    private String sortBy;
+
+    private LeaderboardSortField sortField;
+    private Map<String, LeaderboardDto> leaderboardDtos;
+    private List<String> accountIds;
+    private LeaderboardRankingIndex rankingIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sortField = LeaderboardSortField.fromProperty(sortBy);
+        leaderboardDtos = InMemoryLeaderboardFixtures.leaderboardDtos(leaderboards, 42);
+        accountIds = List.copyOf(leaderboardDtos.keySet());
+        rankingIndex = new LeaderboardRankingIndex();
+        rankingIndex.loadIfAbsent(() -> leaderboardDtos);
+    }
+
+    @Benchmark
+    public List<LeaderboardDto> sortFullList() {
+        return leaderboardDtos.values().stream()
+                .sorted(comparator(sortField).reversed())
+                .limit(10)
+                .toList();
+    }
+
+    @Benchmark
+    public Page<LeaderboardDto> firstPage() {
+        return rankingIndex.page(sortField, true, 0, 10);
+    }
+
+    @Benchmark
+    public Page<LeaderboardDto> middlePage() {
+        return rankingIndex.page(sortField, true, leaderboards / 20, 10);
+    }
+
+    @Benchmark
+    public Object windowAroundAccount() {
+        return rankingIndex.window(randomAccountId(), sortField, true, 5);
+    }
+
+    @Benchmark
+    public void upsert() {
+        String accountId = randomAccountId();
+        LeaderboardDto leaderboard = leaderboardDtos.get(accountId);
+        rankingIndex.upsert(accountId, new LeaderboardDto(
+                leaderboard.fullName(),
+                ThreadLocalRandom.current().nextInt(10_000),
+                leaderboard.completionRate(),
+                leaderboard.currentStreak(),
+                leaderboard.longestStreak(),
+                leaderboard.recentWinner()));
+    }
+
+    private String randomAccountId() {
+        return accountIds.get(ThreadLocalRandom.current().nextInt(accountIds.size()));
+    }
+
+    private static Comparator<LeaderboardDto> comparator(LeaderboardSortField sortField) {
+        return switch (sortField) {
+            case SCORE -> Comparator.comparing(LeaderboardDto::score, Comparator.nullsLast(Integer::compareTo));
+            case FULL_NAME -> Comparator.comparing(LeaderboardDto::fullName, Comparator.nullsLast(String::compareTo));
+            case COMPLETION_RATE -> Comparator.comparingDouble(LeaderboardDto::completionRate);
+            case CURRENT_STREAK -> Comparator.comparingInt(LeaderboardDto::currentStreak);
+            case LONGEST_STREAK -> Comparator.comparingInt(LeaderboardDto::longestStreak);
+            case RECENT_WINNER -> Comparator.comparing(LeaderboardDto::recentWinner);
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package nl.optifit.backendservice.service;
+
+import nl.optifit.backendservice.model.Leaderboard;
+import nl.optifit.backendservice.model.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures scoring and applying a period of session history to the leaderboards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeaderboardScoringBenchmark {
+
+    @Param({"1000", "10000"})
+    private int accounts;
+
+    @Param({"1", "30"})
+    private int days;
+
+    private Map<String, Leaderboard> leaderboards;
+    private List<Session> sessions;
+    private LeaderboardService leaderboardService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        leaderboards = InMemoryLeaderboardFixtures.leaderboards(accounts);
+        sessions = InMemoryLeaderboardFixtures.sessionHistory(leaderboards.values(), days, 42);
+        leaderboardService = InMemoryLeaderboardFixtures.leaderboardService(leaderboards);
+    }
+
+    @Benchmark
+    public void calculateScore(Blackhole blackhole) {
+        for (Session session : sessions) {
+            blackhole.consume(LeaderboardService.calculateScore(0, session));
+        }
+    }
+
+    @Benchmark
+    public void calculateSessionCompletionRate(Blackhole blackhole) {
+        for (Leaderboard leaderboard : leaderboards.values()) {
+            blackhole.consume(leaderboardService.calculateSessionCompletionRate(leaderboard));
+        }
+    }
+
+    @Benchmark
+    public int updateLeaderboards() {
+        return leaderboardService.updateLeaderboards(sessions);
+    }
+
+    @Benchmark
+    public void updateLeaderboardPerSession() {
+        sessions.forEach(leaderboardService::updateLeaderboard);
+    }
+}
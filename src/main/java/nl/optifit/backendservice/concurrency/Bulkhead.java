@@ -0,0 +1,74 @@
+package nl.optifit.backendservice.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Limits the calls to a single downstream to a number of concurrent calls and, optionally, a rate. Callers block
+ * while they queue, which is cheap on virtual threads.
+ */
+class Bulkhead {
+
+    private final Downstream downstream;
+    private final Semaphore permits;
+    private final TokenBucket tokenBucket;
+    private final Duration maxWait;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    Bulkhead(Downstream downstream, BulkheadProperties.Limits limits, MeterRegistry meterRegistry) {
+        this.downstream = downstream;
+        this.permits = new Semaphore(limits.permits(), true);
+        this.tokenBucket = limits.ratePerSecond() > 0 ? new TokenBucket(limits.ratePerSecond()) : null;
+        this.maxWait = limits.maxWait();
+
+        String tag = downstream.name().toLowerCase();
+        Gauge.builder("bulkhead.queue.depth", queued, AtomicInteger::get).tag("downstream", tag).register(meterRegistry);
+        Gauge.builder("bulkhead.active", permits, semaphore -> limits.permits() - semaphore.availablePermits()).tag("downstream", tag).register(meterRegistry);
+        this.waitTimer = Timer.builder("bulkhead.wait").tag("downstream", tag).register(meterRegistry);
+        this.rejected = Counter.builder("bulkhead.rejected").tag("downstream", tag).register(meterRegistry);
+    }
+
+    <T, E extends Exception> T call(ThrowingSupplier<T, E> call) throws E {
+        acquire();
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() {
+        long start = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                throw new BulkheadRejectedException("Timed out waiting for %s after %s".formatted(downstream, maxWait));
+            }
+            if (tokenBucket != null) {
+                // parkNanos may return early, so park until the reserved token is due
+                long due = System.nanoTime() + tokenBucket.reserve();
+                for (long waitNanos = due - System.nanoTime(); waitNanos > 0; waitNanos = due - System.nanoTime()) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BulkheadRejectedException("Interrupted while waiting for %s".formatted(downstream));
+        } finally {
+            queued.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
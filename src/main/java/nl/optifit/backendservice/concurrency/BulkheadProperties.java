@@ -0,0 +1,31 @@
+package nl.optifit.backendservice.concurrency;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "bulkheads")
+public class BulkheadProperties {
+    private Limits defaults = new Limits(8, 0, Duration.ofMinutes(5));
+    private Map<Downstream, Limits> downstreams = new EnumMap<>(Downstream.class);
+
+    public Limits limitsFor(Downstream downstream) {
+        return downstreams.getOrDefault(downstream, defaults);
+    }
+
+    /**
+     * @param permits          maximum number of concurrent calls
+     * @param ratePerSecond    maximum number of calls started per second, or 0 for no rate limit
+     * @param maxWait          maximum time a caller queues before the call is rejected
+     */
+    public record Limits(int permits, double ratePerSecond, Duration maxWait) {
+    }
+}
@@ -0,0 +1,7 @@
+package nl.optifit.backendservice.concurrency;
+
+public class BulkheadRejectedException extends RuntimeException {
+    public BulkheadRejectedException(String message) {
+        super(message);
+    }
+}
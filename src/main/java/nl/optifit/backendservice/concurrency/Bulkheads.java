@@ -0,0 +1,34 @@
+package nl.optifit.backendservice.concurrency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Shared concurrency budget per downstream system, so fan-out jobs cannot overrun connection pools or rate limits.
+ * Every call to a downstream made from a fan-out should go through {@link #call}.
+ */
+@Component
+public class Bulkheads {
+
+    private final Map<Downstream, Bulkhead> bulkheads = new EnumMap<>(Downstream.class);
+
+    public Bulkheads(BulkheadProperties bulkheadProperties, MeterRegistry meterRegistry) {
+        for (Downstream downstream : Downstream.values()) {
+            bulkheads.put(downstream, new Bulkhead(downstream, bulkheadProperties.limitsFor(downstream), meterRegistry));
+        }
+    }
+
+    public <T, E extends Exception> T call(Downstream downstream, ThrowingSupplier<T, E> call) throws E {
+        return bulkheads.get(downstream).call(call);
+    }
+
+    public <E extends Exception> void run(Downstream downstream, ThrowingRunnable<E> runnable) throws E {
+        bulkheads.get(downstream).call(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package nl.optifit.backendservice.concurrency;
+
+public enum Downstream {
+    KEYCLOAK,
+    GRAPH,
+    DRIVE,
+    COSMOS,
+    DATABASE
+}
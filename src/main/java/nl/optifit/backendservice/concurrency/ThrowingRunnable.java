@@ -0,0 +1,6 @@
+package nl.optifit.backendservice.concurrency;
+
+@FunctionalInterface
+public interface ThrowingRunnable<E extends Exception> {
+    void run() throws E;
+}
@@ -0,0 +1,6 @@
+package nl.optifit.backendservice.concurrency;
+
+@FunctionalInterface
+public interface ThrowingSupplier<T, E extends Exception> {
+    T get() throws E;
+}
@@ -0,0 +1,40 @@
+package nl.optifit.backendservice.concurrency;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that hands out reservations: a caller that finds the bucket empty takes a token on credit and is told
+ * how long to wait, so waiting callers are served in arrival order without holding a lock while they sleep.
+ */
+class TokenBucket {
+
+    private final double ratePerNano;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(double ratePerSecond) {
+        this(ratePerSecond, System::nanoTime);
+    }
+
+    TokenBucket(double ratePerSecond, LongSupplier nanoClock) {
+        this.ratePerNano = ratePerSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, ratePerSecond);
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Takes a token and returns the number of nanoseconds the caller has to wait before using it.
+     */
+    synchronized long reserve() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * ratePerNano);
+        lastRefillNanos = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / ratePerNano);
+    }
+}
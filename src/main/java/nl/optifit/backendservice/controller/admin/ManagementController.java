@@ -54,6 +54,7 @@ public class ManagementController {
             case "syncFiles" -> fileService.syncFiles();
             case "removeStaleSessions" -> sessionService.removeStaleSessions();
             case "completeTodaySessions" -> sessionService.completeTodaySessions();
+            case "syncDisplayNames" -> leaderboardService.syncDisplayNames();
             default -> throw new IllegalArgumentException("Job '%s' not recognized".formatted(job));
         };
     }
@@ -4,11 +4,14 @@ import io.swagger.v3.oas.annotations.Hidden;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import nl.optifit.backendservice.dto.AccountDto;
 import nl.optifit.backendservice.dto.BiometricsDto;
 import nl.optifit.backendservice.dto.HealthIndexDto;
+import nl.optifit.backendservice.dto.KeysetPageDto;
 import nl.optifit.backendservice.dto.MobilityDto;
 import nl.optifit.backendservice.dto.PagedResponseDto;
 import nl.optifit.backendservice.dto.SessionDto;
@@ -27,6 +30,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -78,7 +82,24 @@ public class AccountController {
         return ResponseEntity.ok(all);
     }
 
-    @PreAuthorize("@jwtConverter.currentUserMatches(#accountId) and @sessionService.sessionBelongsToAccount(#sessionId, #accountId)")
+    /**
+     * Keyset variant of the session listing, selected by the cursor parameter: pass an empty cursor for the first page
+     * and the returned next cursor for the following ones.
+     */
+    @PreAuthorize("@jwtConverter.currentUserMatches(#accountId)")
+    @GetMapping(value = "/{accountId}/sessions", params = "cursor")
+    public ResponseEntity<KeysetPageDto<SessionDto>> getSessionsForAccountByCursor(@PathVariable String accountId,
+                                                                                   @RequestParam(required = false) String sessionStartDate,
+                                                                                   @RequestParam(required = false) SessionStatus sessionStatus,
+                                                                                   @RequestParam String cursor,
+                                                                                   @RequestParam(defaultValue = "10") @Min(1) @Max(100) int size,
+                                                                                   @RequestParam(defaultValue = "false") boolean includeTotal) {
+        log.info("GET Account Sessions By Cursor REST API called");
+        KeysetPageDto<SessionDto> sessions = sessionService.findAllForAccount(accountId, sessionStartDate, sessionStatus, cursor, size, includeTotal);
+        return ResponseEntity.ok(sessions);
+    }
+
+    @PreAuthorize("@jwtConverter.currentUserMatches(#accountId)")
     @GetMapping("/{accountId}/sessions/{sessionId}")
     public ResponseEntity<SessionDto> getSessionForAccount(@PathVariable String accountId,
                                                            @PathVariable String sessionId) {
@@ -87,12 +108,13 @@ public class AccountController {
         return ResponseEntity.ok(session);
     }
 
-    @PreAuthorize("@jwtConverter.currentUserMatches(#accountId) and @sessionService.sessionBelongsToAccount(#sessionId, #accountId)")
+    @PreAuthorize("@jwtConverter.currentUserMatches(#accountId)")
     @PutMapping("/{accountId}/sessions/{sessionId}")
     public ResponseEntity<SessionDto> updateSession(@PathVariable String accountId,
-                                                    @PathVariable String sessionId) {
+                                                    @PathVariable String sessionId,
+                                                    @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         log.info("PUT Account Session REST API called");
-        sessionService.updateSessionForAccount(sessionId);
+        sessionService.updateSessionForAccount(accountId, sessionId, idempotencyKey);
         return ResponseEntity.noContent().build();
     }
 
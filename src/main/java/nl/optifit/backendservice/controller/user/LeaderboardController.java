@@ -5,14 +5,25 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import nl.optifit.backendservice.dto.LeaderboardDto;
+import nl.optifit.backendservice.dto.LeaderboardSnapshotDto;
+import nl.optifit.backendservice.dto.LeaderboardWindowDto;
 import nl.optifit.backendservice.dto.PagedResponseDto;
+import nl.optifit.backendservice.security.JwtConverter;
+import nl.optifit.backendservice.service.LeaderboardResponseCache;
 import nl.optifit.backendservice.service.LeaderboardService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
+
 @Slf4j
 @RequiredArgsConstructor
 @SecurityRequirement(name = "Bearer Authentication")
@@ -21,21 +32,83 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class LeaderboardController {
     private final LeaderboardService leaderboardService;
+    private final LeaderboardResponseCache leaderboardResponseCache;
+    private final JwtConverter jwtConverter;
 
     @GetMapping
     public ResponseEntity<PagedResponseDto<LeaderboardDto>> getLeaderboards(@RequestParam(defaultValue = "0") int page,
                                                                             @RequestParam(defaultValue = "10") int size,
                                                                             @RequestParam(defaultValue = "desc") String direction,
-                                                                            @RequestParam(defaultValue = "completionRate") String sortBy) {
+                                                                            @RequestParam(defaultValue = "completionRate") String sortBy,
+                                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Get Leaderboards REST API called");
-        PagedResponseDto<LeaderboardDto> all = leaderboardService.findAll(page, size, direction, sortBy);
-        return ResponseEntity.ok(all);
+        String version = leaderboardService.responseVersion();
+        if (leaderboardResponseCache.isNotModified(ifNoneMatch, version)) {
+            return notModified(version);
+        }
+
+        String key = "all:%d:%d:%s:%s".formatted(page, size, direction.toLowerCase(), sortBy);
+        PagedResponseDto<LeaderboardDto> all = leaderboardResponseCache.get(version, key, () -> leaderboardService.findAll(page, size, direction, sortBy));
+        return ok(version, all);
+    }
+
+    @GetMapping("/me")
+    public ResponseEntity<LeaderboardWindowDto> getLeaderboardAroundMe(@RequestParam(defaultValue = "5") int window,
+                                                                       @RequestParam(defaultValue = "desc") String direction,
+                                                                       @RequestParam(defaultValue = "completionRate") String sortBy,
+                                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        log.info("Get Leaderboard Around Me REST API called");
+        String accountId = jwtConverter.getCurrentUserId();
+        String version = leaderboardService.responseVersion();
+        if (leaderboardResponseCache.isNotModified(ifNoneMatch, version)) {
+            return notModified(version);
+        }
+
+        String key = "me:%s:%d:%s:%s".formatted(accountId, window, direction.toLowerCase(), sortBy);
+        LeaderboardWindowDto leaderboardWindow = leaderboardResponseCache.get(version, key, () -> leaderboardService.findWindowForAccount(accountId, window, direction, sortBy));
+        return ok(version, leaderboardWindow);
     }
 
     @GetMapping("/recent-winner")
-    public ResponseEntity<LeaderboardDto> getRecentWinner() {
+    public ResponseEntity<LeaderboardDto> getRecentWinner(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Get Leaderboards Recent Winner REST API called");
-        LeaderboardDto recentWinner = leaderboardService.findByRecentWinner();
-        return ResponseEntity.ok(recentWinner);
+        String version = leaderboardService.responseVersion();
+        if (leaderboardResponseCache.isNotModified(ifNoneMatch, version)) {
+            return notModified(version);
+        }
+
+        LeaderboardDto recentWinner = leaderboardResponseCache.get(version, "recent-winner", leaderboardService::findByRecentWinner);
+        return ok(version, recentWinner);
+    }
+
+    @GetMapping("/history")
+    public ResponseEntity<PagedResponseDto<LeaderboardSnapshotDto>> getHistory(@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime periodEnd,
+                                                                               @RequestParam(defaultValue = "0") int page,
+                                                                               @RequestParam(defaultValue = "10") int size) {
+        log.info("Get Leaderboards History REST API called");
+        PagedResponseDto<LeaderboardSnapshotDto> history = leaderboardService.findHistory(periodEnd, page, size);
+        return ResponseEntity.ok(history);
+    }
+
+    @GetMapping("/history/winners")
+    public ResponseEntity<PagedResponseDto<LeaderboardSnapshotDto>> getPastWinners(@RequestParam(defaultValue = "0") int page,
+                                                                                   @RequestParam(defaultValue = "10") int size) {
+        log.info("Get Leaderboards Past Winners REST API called");
+        PagedResponseDto<LeaderboardSnapshotDto> winners = leaderboardService.findPastWinners(page, size);
+        return ResponseEntity.ok(winners);
+    }
+
+    private <T> ResponseEntity<T> ok(String version, T body) {
+        return ResponseEntity.ok()
+                .eTag(leaderboardResponseCache.etag(version))
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+
+    private <T> ResponseEntity<T> notModified(String version) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(leaderboardResponseCache.etag(version))
+                .cacheControl(CacheControl.noCache())
+                .build();
     }
 }
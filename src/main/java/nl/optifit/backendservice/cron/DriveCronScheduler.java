@@ -3,18 +3,23 @@ package nl.optifit.backendservice.cron;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import nl.optifit.backendservice.service.FileService;
+import nl.optifit.backendservice.service.JobLeaseService;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
 @Slf4j
 @RequiredArgsConstructor
 @Component
 public class DriveCronScheduler {
 
     private final FileService fileService;
+    private final JobLeaseService jobLeaseService;
 
     @Scheduled(cron = "${cron.drive.sync}", zone = "UTC")
     public void syncFiles() {
-        fileService.syncFiles();
+        jobLeaseService.runOnce("drive.sync", LocalDate.now(ZoneOffset.UTC).toString(), fileService::syncFiles);
     }
 }
@@ -2,11 +2,15 @@ package nl.optifit.backendservice.cron;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.service.JobLeaseService;
 import nl.optifit.backendservice.service.LeaderboardService;
 import nl.optifit.backendservice.service.SessionService;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
 @Slf4j
 @RequiredArgsConstructor
 @Component
@@ -14,11 +18,14 @@ public class LeaderboardCronScheduler {
 
     private final LeaderboardService leaderboardService;
     private final SessionService sessionService;
+    private final JobLeaseService jobLeaseService;
 
     @Scheduled(cron = "${cron.leaderboard.reset}", zone = "UTC")
     public void run() {
-        log.info("Resetting leaderboards");
-        leaderboardService.resetLeaderboard();
-        sessionService.removeStaleSessions();
+        jobLeaseService.runOnce("leaderboard.reset", LocalDate.now(ZoneOffset.UTC).toString(), () -> {
+            log.info("Resetting leaderboards");
+            leaderboardService.resetLeaderboard();
+            sessionService.removeStaleSessions();
+        });
     }
 }
@@ -0,0 +1,65 @@
+package nl.optifit.backendservice.cron;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.model.NotificationOutboxEntry;
+import nl.optifit.backendservice.service.NotificationOutboxService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Drains the notification outbox in batches. Replicas can poll concurrently: claiming skips rows that are locked by
+ * another dispatcher, and a claimed entry is not due again until its claim has expired.
+ */
+@Slf4j
+@Component
+public class NotificationOutboxDispatcher {
+
+    private final NotificationOutboxService notificationOutboxService;
+    private final int batchSize;
+
+    public NotificationOutboxDispatcher(NotificationOutboxService notificationOutboxService,
+                                        @Value("${notification.outbox.batch-size:100}") int batchSize) {
+        this.notificationOutboxService = notificationOutboxService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${notification.outbox.poll-interval:2000}")
+    public void dispatch() {
+        try {
+            int claimed;
+            do {
+                claimed = dispatchBatch();
+            } while (claimed == batchSize);
+            notificationOutboxService.refreshLag();
+        } catch (Exception e) {
+            log.error("Could not dispatch notification outbox", e);
+        }
+    }
+
+    /**
+     * Claims and delivers a single batch of due entries.
+     *
+     * @return the number of entries claimed
+     */
+    public int dispatchBatch() {
+        List<NotificationOutboxEntry> batch = notificationOutboxService.claimDue(batchSize);
+        deliver(batch);
+        return batch.size();
+    }
+
+    private void deliver(List<NotificationOutboxEntry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        NotificationOutboxService.DeliveryReport report = notificationOutboxService.deliver(batch);
+        notificationOutboxService.markSent(report.sent());
+        batch.stream()
+                .filter(entry -> report.failed().containsKey(entry.getId()))
+                .forEach(entry -> notificationOutboxService.markFailed(entry, report.failed().get(entry.getId())));
+        log.info("Dispatched {} of {} session notifications", report.sent().size(), batch.size());
+    }
+}
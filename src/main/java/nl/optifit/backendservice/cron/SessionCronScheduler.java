@@ -1,85 +1,254 @@
 package nl.optifit.backendservice.cron;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.concurrency.Bulkheads;
 import nl.optifit.backendservice.model.ExerciseType;
-import nl.optifit.backendservice.model.SessionStatus;
+import nl.optifit.backendservice.model.SessionScheduleRun;
+import nl.optifit.backendservice.repository.SessionScheduleRunRepository;
 import nl.optifit.backendservice.service.AccountService;
+import nl.optifit.backendservice.service.JobLeaseService;
 import nl.optifit.backendservice.service.SessionService;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
+import java.time.DateTimeException;
 import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
 
 import static java.time.DayOfWeek.SATURDAY;
 import static java.time.DayOfWeek.SUNDAY;
+import static nl.optifit.backendservice.concurrency.Downstream.DATABASE;
 import static nl.optifit.backendservice.model.ExerciseType.BACK;
 import static nl.optifit.backendservice.model.ExerciseType.HIP;
 import static nl.optifit.backendservice.model.ExerciseType.SHOULDER;
 
+/**
+ * Fires the create and update slots of {@link SessionSchedule} in every timezone that has accounts. Instead of
+ * polling, it computes the next fire instant over all zones and sleeps until then, waking at least every
+ * {@link #MAX_SLEEP} to pick up new timezones. The last fire of each zone and slot is persisted, so fires missed
+ * while the application was down are caught up on the next wake (creates only within the catch-up window). Every
+ * replica runs this scheduler; job leases make sure each fire is executed once. It can be turned off with
+ * {@code cron.sessions.enabled}.
+ */
 @Slf4j
-@RequiredArgsConstructor
 @Component
+@ConditionalOnProperty(name = "cron.sessions.enabled", havingValue = "true", matchIfMissing = true)
 public class SessionCronScheduler {
 
-    private static final List<String> SUPPORTED_TIMEZONES = List.of(
-            "Europe/Amsterdam"
-    );
+    private static final Duration MAX_SLEEP = Duration.ofMinutes(15);
+    private static final int MAX_DAYS_BETWEEN_FIRES = 7;
 
     private final SessionSchedule sessionSchedule;
-    private final AccountService accountService;
     private final SessionService sessionService;
+    private final AccountService accountService;
+    private final SessionScheduleRunRepository sessionScheduleRunRepository;
+    private final TaskScheduler taskScheduler;
+    private final JobLeaseService jobLeaseService;
+    private final Bulkheads bulkheads;
+    private final Duration catchUpWindow;
+    private final int createShards;
+
+    private ScheduledFuture<?> nextWake;
+
+    public SessionCronScheduler(SessionSchedule sessionSchedule,
+                                SessionService sessionService,
+                                AccountService accountService,
+                                SessionScheduleRunRepository sessionScheduleRunRepository,
+                                TaskScheduler taskScheduler,
+                                JobLeaseService jobLeaseService,
+                                Bulkheads bulkheads,
+                                @Value("${cron.sessions.catch-up:PT45M}") Duration catchUpWindow,
+                                @Value("${jobs.sessions.shards:8}") int createShards) {
+        this.sessionSchedule = sessionSchedule;
+        this.sessionService = sessionService;
+        this.accountService = accountService;
+        this.sessionScheduleRunRepository = sessionScheduleRunRepository;
+        this.taskScheduler = taskScheduler;
+        this.jobLeaseService = jobLeaseService;
+        this.bulkheads = bulkheads;
+        this.catchUpWindow = catchUpWindow;
+        this.createShards = createShards;
+    }
 
-    @Scheduled(cron = "0 */30 * * * *")
-    public void processRegions() {
-        SUPPORTED_TIMEZONES.forEach(this::processRegion);
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        wake();
     }
 
-    private void processRegion(String timezone) {
-        ZonedDateTime now = ZonedDateTime.now(ZoneId.of(timezone));
-        LocalTime localTime = now.toLocalTime().truncatedTo(ChronoUnit.MINUTES);
-        DayOfWeek dayOfWeek = now.getDayOfWeek();
+    private synchronized void wake() {
+        Instant now = Instant.now();
+        List<ZoneId> zones = findZones();
 
-        if (dayOfWeek.equals(SATURDAY) || dayOfWeek.equals(SUNDAY)) {
-            return;
+        try {
+            fireDue(zones, now);
+        } catch (Exception e) {
+            log.error("Could not process session schedule", e);
         }
 
-        log.debug("Checking timezone '{}' at '{}'", timezone, localTime);
+        Instant next = zones.stream()
+                .flatMap(zone -> slotEvents().stream().map(event -> nextFireAfter(zone, event, now)))
+                .min(Comparator.naturalOrder())
+                .filter(earliest -> earliest.isBefore(now.plus(MAX_SLEEP)))
+                .orElse(now.plus(MAX_SLEEP));
 
-        if (matches(localTime, sessionSchedule.getMorning().create())) createSessions(timezone, HIP);
-        if (matches(localTime, sessionSchedule.getMorning().update())) updateSessions(timezone);
+        log.debug("Next session schedule wake at '{}'", next);
+        if (nextWake != null) {
+            nextWake.cancel(false);
+        }
+        nextWake = taskScheduler.schedule(this::wake, next);
+    }
 
-        if (matches(localTime, sessionSchedule.getLunch().create())) createSessions(timezone, SHOULDER);
-        if (matches(localTime, sessionSchedule.getLunch().update())) updateSessions(timezone);
+    private void fireDue(List<ZoneId> zones, Instant now) {
+        List<DueFire> dueFires = new ArrayList<>();
+        for (ZoneId zone : zones) {
+            for (SlotEvent event : slotEvents()) {
+                findDueFire(zone, event, now).ifPresent(dueFires::add);
+            }
+        }
 
-        if (matches(localTime, sessionSchedule.getAfternoon().create())) createSessions(timezone, BACK);
-        if (matches(localTime, sessionSchedule.getAfternoon().update())) updateSessions(timezone);
+        dueFires.sort(Comparator.comparing(DueFire::at));
+        for (DueFire dueFire : dueFires) {
+            if (dueFire.event().isCreate() && dueFire.at().isBefore(now.minus(catchUpWindow))) {
+                log.warn("Skipping '{}' for timezone '{}' missed at '{}'", dueFire.event().name(), dueFire.zone(), dueFire.at());
+                recordFire(dueFire);
+                continue;
+            }
+
+            // A fire that is not completed yet is not recorded, so it is retried on the next wake
+            try {
+                if (fire(dueFire)) {
+                    recordFire(dueFire);
+                }
+            } catch (Exception e) {
+                log.error("Could not fire '{}' for timezone '{}'", dueFire.event().name(), dueFire.zone(), e);
+            }
+        }
     }
 
-    private boolean matches(LocalTime now, LocalTime target) {
-        return now.equals(target);
+    private Optional<DueFire> findDueFire(ZoneId zone, SlotEvent event, Instant now) {
+        String id = runId(zone, event);
+        Optional<SessionScheduleRun> lastRun = sessionScheduleRunRepository.findById(id);
+        if (lastRun.isEmpty()) {
+            // First time this zone is seen: only fires within the catch-up window are considered missed
+            sessionScheduleRunRepository.save(new SessionScheduleRun(id, zone.getId(), event.name(), now.minus(catchUpWindow).atZone(zone)));
+            return latestFireAtOrBefore(zone, event, now)
+                    .filter(at -> at.isAfter(now.minus(catchUpWindow)))
+                    .map(at -> new DueFire(zone, event, at));
+        }
+
+        Instant lastFiredAt = lastRun.get().getLastFiredAt().toInstant();
+        return latestFireAtOrBefore(zone, event, now)
+                .filter(at -> at.isAfter(lastFiredAt))
+                .map(at -> new DueFire(zone, event, at));
     }
 
-    private void createSessions(String timezone, ExerciseType type) {
-        log.debug("Creating '{}' sessions for timezone '{}'", type, timezone);
-        try (var exec = Executors.newVirtualThreadPerTaskExecutor()) {
-            accountService.findAllAccountsByTimezone(timezone)
-                    .forEach(account -> exec.submit(() -> sessionService.createSessionForAccount(account, type)));
+    /**
+     * Runs the fire through job leases, so replicas share the account shards of a create and only one of them runs
+     * an update.
+     *
+     * @return whether the fire has been completed, by this or another replica
+     */
+    private boolean fire(DueFire dueFire) {
+        String timezone = dueFire.zone().getId();
+        String jobName = "sessions:" + runId(dueFire.zone(), dueFire.event());
+        String runKey = dueFire.at().toString();
+
+        if (dueFire.event().isCreate()) {
+            log.debug("Creating '{}' sessions for timezone '{}'", dueFire.event().exerciseType(), timezone);
+            return jobLeaseService.runSharded(jobName, runKey, createShards,
+                    shard -> bulkheads.call(DATABASE, () -> sessionService.createSessions(timezone, dueFire.event().exerciseType(), shard, createShards)));
         }
-    }
 
-    private void updateSessions(String timezone) {
         log.debug("Updating NEW sessions for '{}'", timezone);
-        try (var exec = Executors.newVirtualThreadPerTaskExecutor()) {
-            sessionService.getByStatus(SessionStatus.NEW).stream()
-                    .filter(session -> timezone.equals(session.getAccount().getTimezone()))
-                    .forEach(session -> exec.submit(() -> sessionService.updateSessionForAccount(session.getId().toString())));
+        return jobLeaseService.runSharded(jobName, runKey, 1, shard -> bulkheads.call(DATABASE, () -> sessionService.expireOverdueSessions(timezone)));
+    }
+
+    private void recordFire(DueFire dueFire) {
+        String id = runId(dueFire.zone(), dueFire.event());
+        sessionScheduleRunRepository.save(new SessionScheduleRun(id, dueFire.zone().getId(), dueFire.event().name(), dueFire.at().atZone(dueFire.zone())));
+    }
+
+    private List<ZoneId> findZones() {
+        List<ZoneId> zones = new ArrayList<>();
+        for (String timezone : accountService.findAllTimezones()) {
+            try {
+                zones.add(ZoneId.of(timezone));
+            } catch (DateTimeException e) {
+                log.warn("Ignoring invalid timezone '{}'", timezone);
+            }
+        }
+        return zones;
+    }
+
+    private List<SlotEvent> slotEvents() {
+        return List.of(
+                new SlotEvent("morning.create", sessionSchedule.getMorning().create(), HIP),
+                new SlotEvent("morning.update", sessionSchedule.getMorning().update(), null),
+                new SlotEvent("lunch.create", sessionSchedule.getLunch().create(), SHOULDER),
+                new SlotEvent("lunch.update", sessionSchedule.getLunch().update(), null),
+                new SlotEvent("afternoon.create", sessionSchedule.getAfternoon().create(), BACK),
+                new SlotEvent("afternoon.update", sessionSchedule.getAfternoon().update(), null)
+        );
+    }
+
+    /**
+     * ZonedDateTime.of moves local times that fall into a DST gap forward and picks the earlier offset in an overlap,
+     * so every working day yields exactly one fire instant.
+     */
+    private static Optional<Instant> latestFireAtOrBefore(ZoneId zone, SlotEvent event, Instant instant) {
+        LocalDate date = instant.atZone(zone).toLocalDate();
+        for (int i = 0; i <= MAX_DAYS_BETWEEN_FIRES; i++) {
+            Optional<Instant> fire = fireOn(date.minusDays(i), zone, event);
+            if (fire.isPresent() && !fire.get().isAfter(instant)) {
+                return fire;
+            }
         }
+        return Optional.empty();
+    }
+
+    private static Instant nextFireAfter(ZoneId zone, SlotEvent event, Instant instant) {
+        LocalDate date = instant.atZone(zone).toLocalDate();
+        for (int i = 0; i <= MAX_DAYS_BETWEEN_FIRES; i++) {
+            Optional<Instant> fire = fireOn(date.plusDays(i), zone, event);
+            if (fire.isPresent() && fire.get().isAfter(instant)) {
+                return fire.get();
+            }
+        }
+        return instant.plus(MAX_SLEEP);
+    }
+
+    private static Optional<Instant> fireOn(LocalDate date, ZoneId zone, SlotEvent event) {
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        if (dayOfWeek.equals(SATURDAY) || dayOfWeek.equals(SUNDAY)) {
+            return Optional.empty();
+        }
+        return Optional.of(ZonedDateTime.of(date, event.time(), zone).toInstant());
+    }
+
+    private static String runId(ZoneId zone, SlotEvent event) {
+        return "%s:%s".formatted(zone.getId(), event.name());
+    }
+
+    private record SlotEvent(String name, LocalTime time, ExerciseType exerciseType) {
+        boolean isCreate() {
+            return exerciseType != null;
+        }
+    }
+
+    private record DueFire(ZoneId zone, SlotEvent event, Instant at) {
     }
 }
@@ -0,0 +1,95 @@
+package nl.optifit.backendservice.cron;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.concurrency.Bulkheads;
+import nl.optifit.backendservice.service.SessionExpiryTimer;
+import nl.optifit.backendservice.service.SessionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static nl.optifit.backendservice.concurrency.Downstream.DATABASE;
+
+/**
+ * Expires sessions as their timers fire. At most one batch is processed per tick, so a slot's worth of sessions that
+ * expire at the same minute is spread out instead of being handled in one burst. When a batch fails, for instance on
+ * an optimistic lock conflict with a concurrent completion, its sessions are expired one by one, and those that fail
+ * again are put back on the timer after a short delay.
+ */
+@Slf4j
+@Component
+public class SessionExpiryScheduler {
+
+    private final SessionExpiryTimer sessionExpiryTimer;
+    private final SessionService sessionService;
+    private final Bulkheads bulkheads;
+    private final int batchSize;
+    private final Duration retryDelay;
+    private final int maxAttempts;
+
+    private final Deque<UUID> due = new ArrayDeque<>();
+    private final Map<UUID, Integer> failedAttempts = new HashMap<>();
+
+    public SessionExpiryScheduler(SessionExpiryTimer sessionExpiryTimer,
+                                  SessionService sessionService,
+                                  Bulkheads bulkheads,
+                                  @Value("${sessions.expiry.batch-size:50}") int batchSize,
+                                  @Value("${sessions.expiry.retry-delay:PT5S}") Duration retryDelay,
+                                  @Value("${sessions.expiry.max-attempts:5}") int maxAttempts) {
+        this.sessionExpiryTimer = sessionExpiryTimer;
+        this.sessionService = sessionService;
+        this.bulkheads = bulkheads;
+        this.batchSize = batchSize;
+        this.retryDelay = retryDelay;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Scheduled(fixedDelayString = "${sessions.expiry.tick:1000}")
+    public void run() {
+        due.addAll(sessionExpiryTimer.advance(Instant.now()));
+        if (due.isEmpty()) {
+            return;
+        }
+
+        List<UUID> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && !due.isEmpty()) {
+            batch.add(due.poll());
+        }
+
+        try {
+            int expired = bulkheads.call(DATABASE, () -> sessionService.expireSessions(batch));
+            batch.forEach(failedAttempts::remove);
+            log.debug("Expired {} of {} due sessions, {} still queued", expired, batch.size(), due.size());
+        } catch (Exception e) {
+            log.warn("Could not expire batch of {} sessions, expiring them one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::expireOrRetry);
+        }
+    }
+
+    private void expireOrRetry(UUID sessionId) {
+        try {
+            bulkheads.call(DATABASE, () -> sessionService.expireSessions(List.of(sessionId)));
+            failedAttempts.remove(sessionId);
+        } catch (Exception e) {
+            int attempts = failedAttempts.merge(sessionId, 1, Integer::sum);
+            if (attempts >= maxAttempts) {
+                failedAttempts.remove(sessionId);
+                log.error("Giving up on expiring session '{}' after {} attempts", sessionId, attempts, e);
+            } else {
+                sessionExpiryTimer.schedule(sessionId, ZonedDateTime.now().plus(retryDelay));
+                log.warn("Could not expire session '{}', retrying in {}: {}", sessionId, retryDelay, e.getMessage());
+            }
+        }
+    }
+}
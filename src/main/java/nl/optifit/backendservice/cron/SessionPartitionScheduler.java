@@ -0,0 +1,49 @@
+package nl.optifit.backendservice.cron;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.service.JobLeaseService;
+import nl.optifit.backendservice.service.SessionPartitionService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class SessionPartitionScheduler {
+
+    private final SessionPartitionService sessionPartitionService;
+    private final JobLeaseService jobLeaseService;
+
+    /**
+     * Creates missing partitions right away, so a deployment after a longer downtime does not route new sessions into
+     * the default partition until the nightly run.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!sessionPartitionService.isEnabled()) {
+            return;
+        }
+        try {
+            sessionPartitionService.createUpcomingPartitions();
+        } catch (Exception e) {
+            log.warn("Could not create upcoming session partitions on startup, leaving it to the nightly run", e);
+        }
+    }
+
+    @Scheduled(cron = "${cron.sessions.partitions:0 30 0 * * *}", zone = "UTC")
+    public void run() {
+        if (!sessionPartitionService.isEnabled()) {
+            return;
+        }
+        jobLeaseService.runOnce("sessions.partitions", LocalDate.now(ZoneOffset.UTC).toString(), () -> {
+            sessionPartitionService.createUpcomingPartitions();
+            sessionPartitionService.dropExpiredArchivePartitions();
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package nl.optifit.backendservice.dto;
+
+import java.time.Duration;
+
+/**
+ * Outcome of one event of a Graph batch. {@code retryAfter} carries the throttling hint of a failed event, if any.
+ */
+public record CalendarEventResultDto(
+        String sessionId,
+        boolean sent,
+        String error,
+        Duration retryAfter) {
+
+    public static CalendarEventResultDto sent(String sessionId) {
+        return new CalendarEventResultDto(sessionId, true, null, null);
+    }
+
+    public static CalendarEventResultDto failed(String sessionId, String error, Duration retryAfter) {
+        return new CalendarEventResultDto(sessionId, false, error, retryAfter);
+    }
+}
@@ -0,0 +1,11 @@
+package nl.optifit.backendservice.dto;
+
+import com.microsoft.graph.models.DateTimeTimeZone;
+
+public record CalendarInviteDto(
+        String email,
+        String fullName,
+        String sessionId,
+        DateTimeTimeZone start,
+        DateTimeTimeZone end) {
+}
@@ -0,0 +1,10 @@
+package nl.optifit.backendservice.dto;
+
+import java.util.List;
+
+/**
+ * Page of a keyset listing. {@code nextCursor} is null on the last page and {@code totalElements} is null unless the
+ * total was requested.
+ */
+public record KeysetPageDto<T>(List<T> content, int size, String nextCursor, Long totalElements) {
+}
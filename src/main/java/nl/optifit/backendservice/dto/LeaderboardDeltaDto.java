@@ -0,0 +1,23 @@
+package nl.optifit.backendservice.dto;
+
+public record LeaderboardDeltaDto(
+        Integer rank,
+        String fullName,
+        Integer score,
+        double completionRate,
+        int currentStreak,
+        int longestStreak,
+        boolean recentWinner) {
+
+    public static LeaderboardDeltaDto fromLeaderboardDto(Integer rank, LeaderboardDto leaderboard) {
+        return new LeaderboardDeltaDto(
+                rank,
+                leaderboard.fullName(),
+                leaderboard.score(),
+                leaderboard.completionRate(),
+                leaderboard.currentStreak(),
+                leaderboard.longestStreak(),
+                leaderboard.recentWinner()
+        );
+    }
+}
@@ -10,6 +10,10 @@ public record LeaderboardDto(
         int longestStreak,
         boolean recentWinner) {
 
+    public static LeaderboardDto fromLeaderboard(Leaderboard leaderboard) {
+        return fromLeaderboard(leaderboard.getDisplayName(), leaderboard);
+    }
+
     public static LeaderboardDto fromLeaderboard(String fullName, Leaderboard leaderboard) {
         return new LeaderboardDto(
                 fullName,
@@ -0,0 +1,4 @@
+package nl.optifit.backendservice.dto;
+
+public record LeaderboardResetDto(String winnerAccountId, int snapshotCount, int resetCount, long durationMs) {
+}
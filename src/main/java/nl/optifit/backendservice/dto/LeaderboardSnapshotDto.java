@@ -0,0 +1,30 @@
+package nl.optifit.backendservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import nl.optifit.backendservice.model.LeaderboardSnapshot;
+
+import java.time.LocalDateTime;
+
+public record LeaderboardSnapshotDto(
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime periodStart,
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime periodEnd,
+        String fullName,
+        Integer score,
+        double completionRate,
+        int currentStreak,
+        int longestStreak,
+        boolean winner) {
+
+    public static LeaderboardSnapshotDto fromLeaderboardSnapshot(LeaderboardSnapshot snapshot) {
+        return new LeaderboardSnapshotDto(
+                snapshot.getPeriodStart(),
+                snapshot.getPeriodEnd(),
+                snapshot.getDisplayName(),
+                snapshot.getScore(),
+                snapshot.getCompletionRate(),
+                snapshot.getCurrentStreak(),
+                snapshot.getLongestStreak(),
+                snapshot.getWinner()
+        );
+    }
+}
@@ -0,0 +1,6 @@
+package nl.optifit.backendservice.dto;
+
+import java.util.List;
+
+public record LeaderboardWindowDto(long rank, long firstRank, long totalElements, List<LeaderboardDto> content) {
+}
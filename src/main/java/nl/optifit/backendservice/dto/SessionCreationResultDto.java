@@ -0,0 +1,8 @@
+package nl.optifit.backendservice.dto;
+
+public record SessionCreationResultDto(
+        int accounts,
+        int sessions,
+        long loadMs,
+        long persistMs) {
+}
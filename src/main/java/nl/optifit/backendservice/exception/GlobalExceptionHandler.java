@@ -1,14 +1,17 @@
 package nl.optifit.backendservice.exception;
 
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.NotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.apiguardian.api.API;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.authorization.AuthorizationDeniedException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.web.context.request.NativeWebRequest;
 import org.zalando.problem.Problem;
 import org.zalando.problem.spring.common.HttpStatusAdapter;
@@ -18,6 +21,8 @@ import java.io.IOException;
 import java.net.URI;
 
 import static org.apiguardian.api.API.Status.INTERNAL;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.FORBIDDEN;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
@@ -35,6 +40,33 @@ public class GlobalExceptionHandler implements ProblemHandling {
         return create(new HttpStatusAdapter(NOT_FOUND), exception, request);
     }
 
+    @API(status = INTERNAL)
+    @ExceptionHandler
+    ResponseEntity<Problem> handleBadRequestException(
+            final BadRequestException exception,
+            final NativeWebRequest request) {
+        log.debug("Handling BadRequestException: '{}'", exception.getMessage(), exception);
+        return create(new HttpStatusAdapter(BAD_REQUEST), exception, request);
+    }
+
+    @API(status = INTERNAL)
+    @ExceptionHandler
+    ResponseEntity<Problem> handleHandlerMethodValidationException(
+            final HandlerMethodValidationException exception,
+            final NativeWebRequest request) {
+        log.debug("Handling HandlerMethodValidationException: '{}'", exception.getMessage(), exception);
+        return create(new HttpStatusAdapter(BAD_REQUEST), exception, request);
+    }
+
+    @API(status = INTERNAL)
+    @ExceptionHandler
+    ResponseEntity<Problem> handleOptimisticLockingFailure(
+            final ObjectOptimisticLockingFailureException exception,
+            final NativeWebRequest request) {
+        log.debug("Handling ObjectOptimisticLockingFailureException: '{}'", exception.getMessage(), exception);
+        return create(new HttpStatusAdapter(CONFLICT), exception, request);
+    }
+
     @ExceptionHandler(AuthorizationDeniedException.class)
     public ResponseEntity<Problem> handleAuthorizationDenied(
             AuthorizationDeniedException ex, NativeWebRequest request) {
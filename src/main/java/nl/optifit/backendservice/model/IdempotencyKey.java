@@ -0,0 +1,33 @@
+package nl.optifit.backendservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyKey implements Serializable {
+    @EmbeddedId
+    private IdempotencyKeyId id;
+    @Column(nullable = false, length = 512)
+    private String request;
+    @Column
+    private Boolean applied;
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,34 @@
+package nl.optifit.backendservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+@Entity
+@Table(name = "job_leases")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobLease implements Serializable {
+    @Id
+    private String name;
+    @Column(nullable = false)
+    private String owner;
+    @Column(name = "locked_until", nullable = false)
+    private Instant lockedUntil;
+    @Column(name = "run_key", nullable = false)
+    private String runKey;
+    @Column(nullable = false)
+    private boolean completed;
+}
@@ -11,6 +11,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.MapsId;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.PastOrPresent;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,7 +23,10 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "leaderboards", indexes = @Index(columnList = "account_id"))
+@Table(name = "leaderboards", indexes = {
+        @Index(columnList = "account_id"),
+        @Index(name = "idx_leaderboards_display_name", columnList = "display_name")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -36,6 +40,8 @@ public class Leaderboard implements Serializable {
     @MapsId
     @JsonBackReference
     private Account account;
+    @Column(name = "display_name")
+    private String displayName;
     @Builder.Default
     @PastOrPresent(message = "Measured datetime cannot be in the future")
     @JsonFormat(pattern="yyyy-MM-dd HH:mm:ss")
@@ -59,4 +65,12 @@ public class Leaderboard implements Serializable {
     @Column(nullable = false)
     @Builder.Default
     private Boolean recentWinner = false;
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer sessionsSinceReset = 0;
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer completedSinceReset = 0;
+    @Version
+    private Long version;
 }
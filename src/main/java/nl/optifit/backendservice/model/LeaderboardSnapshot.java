@@ -0,0 +1,55 @@
+package nl.optifit.backendservice.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Entity
+@Immutable
+@Table(name = "leaderboard_snapshots", indexes = {
+        @Index(name = "idx_leaderboard_snapshots_period_end", columnList = "period_end"),
+        @Index(name = "idx_leaderboard_snapshots_account_id", columnList = "account_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LeaderboardSnapshot implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @Column(name = "period_start")
+    private LocalDateTime periodStart;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @Column(name = "period_end", nullable = false)
+    private LocalDateTime periodEnd;
+    @Column(name = "account_id", nullable = false)
+    private String accountId;
+    @Column(name = "display_name")
+    private String displayName;
+    private Integer score;
+    @Column(nullable = false)
+    private Double completionRate;
+    @Column(nullable = false)
+    private Integer currentStreak;
+    @Column(nullable = false)
+    private Integer longestStreak;
+    @Column(nullable = false)
+    private Boolean winner;
+}
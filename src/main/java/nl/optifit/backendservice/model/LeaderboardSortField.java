@@ -0,0 +1,28 @@
+package nl.optifit.backendservice.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+@Getter
+@RequiredArgsConstructor
+public enum LeaderboardSortField {
+    SCORE("score", "score", "score"),
+    FULL_NAME("fullName", "displayName", "display_name"),
+    COMPLETION_RATE("completionRate", "completionRate", "completion_rate"),
+    CURRENT_STREAK("currentStreak", "currentStreak", "current_streak"),
+    LONGEST_STREAK("longestStreak", "longestStreak", "longest_streak"),
+    RECENT_WINNER("recentWinner", "recentWinner", "recent_winner");
+
+    private final String property;
+    private final String entityProperty;
+    private final String column;
+
+    public static LeaderboardSortField fromProperty(String property) {
+        return Arrays.stream(values())
+                .filter(field -> field.property.equals(property))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Invalid sort field: " + property));
+    }
+}
@@ -0,0 +1,7 @@
+package nl.optifit.backendservice.model;
+
+public enum OutboxStatus {
+    PENDING,
+    SENT,
+    DEAD
+}
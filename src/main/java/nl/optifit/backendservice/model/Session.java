@@ -13,6 +13,7 @@ import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.PastOrPresent;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -25,7 +26,11 @@ import java.time.ZonedDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "sessions", indexes = @Index(columnList = "account_id"))
+@Table(name = "sessions", indexes = {
+        @Index(name = "idx_sessions_account_id_session_start_id", columnList = "account_id, session_start DESC, id DESC"),
+        @Index(name = "idx_sessions_account_id_session_status", columnList = "account_id, session_status, session_start DESC"),
+        @Index(name = "idx_sessions_expires_at", columnList = "expires_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -44,6 +49,8 @@ public class Session implements Serializable {
     @PastOrPresent(message = "Measured date cannot be in the future")
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSZ", timezone = "Europe/Amsterdam")
     private ZonedDateTime sessionExecutionTime;
+    @Column(name = "expires_at")
+    private ZonedDateTime expiresAt;
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private ExerciseType exerciseType;
@@ -53,4 +60,6 @@ public class Session implements Serializable {
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "exercise_video_id", referencedColumnName = "id")
     private ExerciseVideo exerciseVideo;
+    @Version
+    private Long version;
 }
@@ -0,0 +1,32 @@
+package nl.optifit.backendservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+
+@Entity
+@Table(name = "session_schedule_runs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionScheduleRun implements Serializable {
+    @Id
+    private String id;
+    @Column(nullable = false)
+    private String timezone;
+    @Column(nullable = false)
+    private String event;
+    @Column(name = "last_fired_at", nullable = false)
+    private ZonedDateTime lastFiredAt;
+}
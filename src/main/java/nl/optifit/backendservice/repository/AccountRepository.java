@@ -2,6 +2,7 @@ package nl.optifit.backendservice.repository;
 
 import nl.optifit.backendservice.model.Account;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,5 +12,7 @@ import java.util.Optional;
 public interface AccountRepository extends JpaRepository<Account, String> {
     Optional<Account> findById(String accountId);
     void deleteById(String accountId);
-    List<Account> findAllByTimezone(String timezone);
+
+    @Query("SELECT DISTINCT a.timezone FROM Account a")
+    List<String> findDistinctTimezones();
 }
@@ -0,0 +1,40 @@
+package nl.optifit.backendservice.repository;
+
+import nl.optifit.backendservice.model.IdempotencyKey;
+import nl.optifit.backendservice.model.IdempotencyKeyId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, IdempotencyKeyId> {
+
+    /**
+     * Inserts the key unless it exists. A concurrent claim of the same key waits for the first one to commit or roll
+     * back, so at most one request per key gets to run.
+     *
+     * @return 1 if the key was claimed, 0 if it already existed
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO idempotency_keys (account_id, idempotency_key, request, created_at)
+            VALUES (:accountId, :key, :request, :createdAt)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int claim(@Param("accountId") String accountId,
+              @Param("key") String key,
+              @Param("request") String request,
+              @Param("createdAt") Instant createdAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyKey k SET k.applied = :applied WHERE k.id.accountId = :accountId AND k.id.key = :key")
+    int recordOutcome(@Param("accountId") String accountId, @Param("key") String key, @Param("applied") boolean applied);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,51 @@
+package nl.optifit.backendservice.repository;
+
+import nl.optifit.backendservice.model.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    /**
+     * Takes over the lease if it is completed for another run, or has expired without completing. A lease that is
+     * still held is never taken over, also not by a replica that is already on a later run.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("""
+            UPDATE JobLease l
+            SET l.owner = :owner, l.lockedUntil = :lockedUntil, l.runKey = :runKey, l.completed = false
+            WHERE l.name = :name
+              AND (l.completed = true OR l.lockedUntil < :now)
+              AND (l.runKey <> :runKey OR l.completed = false)
+            """)
+    int claim(@Param("name") String name,
+              @Param("owner") String owner,
+              @Param("runKey") String runKey,
+              @Param("now") Instant now,
+              @Param("lockedUntil") Instant lockedUntil);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("""
+            UPDATE JobLease l
+            SET l.completed = :completed, l.lockedUntil = :now
+            WHERE l.name = :name AND l.owner = :owner AND l.runKey = :runKey
+            """)
+    int finish(@Param("name") String name,
+               @Param("owner") String owner,
+               @Param("runKey") String runKey,
+               @Param("completed") boolean completed,
+               @Param("now") Instant now);
+
+    @Query("SELECT COUNT(l) FROM JobLease l WHERE l.name IN :names AND l.runKey = :runKey AND l.completed = true")
+    long countCompleted(@Param("names") List<String> names, @Param("runKey") String runKey);
+}
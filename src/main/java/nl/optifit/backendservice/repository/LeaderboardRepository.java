@@ -2,17 +2,65 @@ package nl.optifit.backendservice.repository;
 
 import nl.optifit.backendservice.model.Leaderboard;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface LeaderboardRepository extends JpaRepository<Leaderboard, UUID> {
+public interface LeaderboardRepository extends JpaRepository<Leaderboard, UUID>, LeaderboardRepositoryCustom {
     Optional<Leaderboard> findByAccountId(String accountId);
 
     Optional<Leaderboard> findByRecentWinnerTrue();
 
     List<Leaderboard> findAllByAccountIdIn(List<String> accountIds);
+
+    /**
+     * Describes the persisted state of all leaderboards. Every write bumps a row version, and a new row carries the
+     * latest update time, so the state changes whenever any leaderboard does.
+     */
+    @Query("""
+            SELECT concat(cast(count(l) AS String), ':', cast(coalesce(sum(l.version), 0) AS String), ':',
+                          coalesce(cast(max(l.lastUpdated) AS String), ''))
+            FROM Leaderboard l
+            """)
+    String findState();
+
+    @Query("SELECT l.accountId FROM Leaderboard l WHERE l.displayName IS NULL")
+    List<String> findAccountIdsWithoutDisplayName();
+
+    @Query(value = """
+            SELECT ranked.account_id
+            FROM (SELECT account_id, RANK() OVER (ORDER BY score DESC NULLS LAST) AS score_rank
+                  FROM leaderboards) ranked
+            WHERE ranked.score_rank = 1
+            ORDER BY RANDOM()
+            LIMIT 1
+            """, nativeQuery = true)
+    Optional<String> findRandomTopScoringAccountId();
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query(value = """
+            UPDATE leaderboards
+            SET score                 = 0,
+                sessions_since_reset  = 0,
+                completed_since_reset = 0,
+                recent_winner         = (account_id = :winnerAccountId),
+                reset_at              = :resetAt,
+                last_updated          = :resetAt,
+                version               = version + 1
+            """, nativeQuery = true)
+    int resetAll(@Param("winnerAccountId") String winnerAccountId, @Param("resetAt") LocalDateTime resetAt);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Leaderboard l SET l.displayName = :displayName, l.version = l.version + 1 WHERE l.accountId = :accountId")
+    int updateDisplayName(@Param("accountId") String accountId, @Param("displayName") String displayName);
 }
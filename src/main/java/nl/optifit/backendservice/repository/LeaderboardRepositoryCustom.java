@@ -0,0 +1,10 @@
+package nl.optifit.backendservice.repository;
+
+import nl.optifit.backendservice.dto.LeaderboardWindowDto;
+import nl.optifit.backendservice.model.LeaderboardSortField;
+
+import java.util.Optional;
+
+public interface LeaderboardRepositoryCustom {
+    Optional<LeaderboardWindowDto> findWindowAroundAccount(String accountId, LeaderboardSortField sortField, boolean descending, int window);
+}
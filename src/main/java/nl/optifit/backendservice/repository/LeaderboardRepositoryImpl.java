@@ -0,0 +1,68 @@
+package nl.optifit.backendservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import nl.optifit.backendservice.dto.LeaderboardDto;
+import nl.optifit.backendservice.dto.LeaderboardWindowDto;
+import nl.optifit.backendservice.model.LeaderboardSortField;
+
+import java.util.List;
+import java.util.Optional;
+
+public class LeaderboardRepositoryImpl implements LeaderboardRepositoryCustom {
+
+    // The sort column comes from LeaderboardSortField, never from request input, so it is safe to inline
+    private static final String WINDOW_QUERY = """
+            WITH ranked AS (SELECT account_id,
+                                   display_name,
+                                   score,
+                                   completion_rate,
+                                   current_streak,
+                                   longest_streak,
+                                   recent_winner,
+                                   ROW_NUMBER() OVER (ORDER BY %1$s %2$s, account_id %2$s) AS position,
+                                   COUNT(*) OVER ()                                         AS total
+                            FROM leaderboards),
+                 me AS (SELECT position FROM ranked WHERE account_id = :accountId)
+            SELECT ranked.*, me.position AS my_position
+            FROM ranked
+                     CROSS JOIN me
+            WHERE ranked.position BETWEEN me.position - :window AND me.position + :window
+            ORDER BY ranked.position
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<LeaderboardWindowDto> findWindowAroundAccount(String accountId, LeaderboardSortField sortField, boolean descending, int window) {
+        String sql = WINDOW_QUERY.formatted(sortField.getColumn(), descending ? "DESC" : "ASC");
+        List<Tuple> rows = entityManager.createNativeQuery(sql, Tuple.class)
+                .setParameter("accountId", accountId)
+                .setParameter("window", window)
+                .getResultList();
+
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Tuple first = rows.getFirst();
+        List<LeaderboardDto> content = rows.stream()
+                .map(row -> new LeaderboardDto(
+                        row.get("display_name", String.class),
+                        row.get("score") == null ? null : ((Number) row.get("score")).intValue(),
+                        ((Number) row.get("completion_rate")).doubleValue(),
+                        ((Number) row.get("current_streak")).intValue(),
+                        ((Number) row.get("longest_streak")).intValue(),
+                        Boolean.TRUE.equals(row.get("recent_winner"))))
+                .toList();
+
+        return Optional.of(new LeaderboardWindowDto(
+                ((Number) first.get("my_position")).longValue(),
+                ((Number) first.get("position")).longValue(),
+                ((Number) first.get("total")).longValue(),
+                content));
+    }
+}
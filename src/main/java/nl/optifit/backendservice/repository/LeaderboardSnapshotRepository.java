@@ -0,0 +1,31 @@
+package nl.optifit.backendservice.repository;
+
+import nl.optifit.backendservice.model.LeaderboardSnapshot;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface LeaderboardSnapshotRepository extends JpaRepository<LeaderboardSnapshot, Long> {
+    Page<LeaderboardSnapshot> findAllByPeriodEnd(Pageable pageable, LocalDateTime periodEnd);
+
+    Page<LeaderboardSnapshot> findAllByWinnerTrue(Pageable pageable);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO leaderboard_snapshots (period_start, period_end, account_id, display_name, score,
+                                               completion_rate, current_streak, longest_streak, winner)
+            SELECT reset_at, :periodEnd, account_id, display_name, score,
+                   completion_rate, current_streak, longest_streak, (account_id = :winnerAccountId)
+            FROM leaderboards
+            """, nativeQuery = true)
+    int snapshotAll(@Param("periodEnd") LocalDateTime periodEnd, @Param("winnerAccountId") String winnerAccountId);
+}
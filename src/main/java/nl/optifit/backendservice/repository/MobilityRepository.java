@@ -4,8 +4,11 @@ import nl.optifit.backendservice.model.Mobility;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -13,4 +16,18 @@ import java.util.UUID;
 public interface MobilityRepository extends JpaRepository<Mobility, UUID> {
     Page<Mobility> findAllByAccountId(Pageable pageable, String accountId);
     Optional<Mobility> findTopByAccountIdOrderByMeasuredOnDesc(String accountId);
+
+    /**
+     * Finds the latest mobility of the accounts in the timezone whose id hashes into the shard, so every shard reads
+     * only its own accounts.
+     */
+    @Query("""
+            SELECT m FROM Mobility m JOIN FETCH m.account a
+            WHERE a.timezone = :timezone
+              AND mod(abs(cast(function('hashtext', a.id) AS Long)), :shards) = :shard
+              AND m.measuredOn = (SELECT MAX(latest.measuredOn) FROM Mobility latest WHERE latest.account = a)
+            """)
+    List<Mobility> findLatestForAccountsInTimezoneShard(@Param("timezone") String timezone,
+                                                        @Param("shard") int shard,
+                                                        @Param("shards") int shards);
 }
@@ -0,0 +1,52 @@
+package nl.optifit.backendservice.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import nl.optifit.backendservice.model.NotificationOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxEntry, UUID> {
+
+    /**
+     * Locks the oldest due entries, skipping rows that another dispatcher has locked (lock timeout -2 translates to
+     * SKIP LOCKED).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            SELECT o FROM NotificationOutboxEntry o
+            WHERE o.status = nl.optifit.backendservice.model.OutboxStatus.PENDING AND o.nextAttemptAt <= :now
+            ORDER BY o.nextAttemptAt
+            """)
+    List<NotificationOutboxEntry> findDueForUpdate(@Param("now") Instant now, Pageable pageable);
+
+    @Modifying
+    @Query("""
+            UPDATE NotificationOutboxEntry o
+            SET o.status = nl.optifit.backendservice.model.OutboxStatus.SENT, o.sentAt = :now, o.lastError = null
+            WHERE o.id IN :ids
+            """)
+    int markSent(@Param("ids") Collection<UUID> ids, @Param("now") Instant now);
+
+    @Modifying
+    @Query("DELETE FROM NotificationOutboxEntry o WHERE o.sessionStart < :cutoff")
+    int deleteForSessionsBefore(@Param("cutoff") ZonedDateTime cutoff);
+
+    @Query("SELECT MIN(o.createdAt) FROM NotificationOutboxEntry o WHERE o.status = nl.optifit.backendservice.model.OutboxStatus.PENDING")
+    Optional<Instant> findOldestPendingCreatedAt();
+}
@@ -1,7 +1,7 @@
 package nl.optifit.backendservice.repository;
 
 import nl.optifit.backendservice.model.Session;
-import nl.optifit.backendservice.model.SessionStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
@@ -16,15 +16,91 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface SessionRepository extends JpaRepository<Session, UUID>, JpaSpecificationExecutor<Session> {
-    List<Session> findAllBySessionStatusEquals(SessionStatus sessionStatus);
-
+public interface SessionRepository extends JpaRepository<Session, UUID>, JpaSpecificationExecutor<Session>, SessionRepositoryCustom {
+    /**
+     * Loads the session only if it belongs to the account, together with its video, in a single statement. Doubles
+     * as the ownership check of the account session endpoints.
+     */
+    @EntityGraph(attributePaths = "exerciseVideo")
     Optional<Session> findByIdAndAccountId(UUID uuid, String accountId);
 
     List<Session> findAllBySessionStartBetween(ZonedDateTime start, ZonedDateTime end);
 
+    /**
+     * Marks all NEW sessions of accounts in the timezone that started at or before the cutoff as OVERDUE and returns
+     * them. Relies on PostgreSQL's data-modifying CTEs.
+     */
+    @Transactional
+    @Query(value = """
+            WITH overdue AS (
+                UPDATE sessions s
+                SET session_status         = 'OVERDUE',
+                    session_execution_time = NULL,
+                    version                = s.version + 1
+                FROM accounts a
+                WHERE a.account_id = s.account_id
+                  AND a.timezone = :timezone
+                  AND s.session_status = 'NEW'
+                  AND s.session_start <= :cutoff
+                RETURNING s.*)
+            SELECT * FROM overdue
+            """, nativeQuery = true)
+    List<Session> markOverdueForTimezone(@Param("timezone") String timezone, @Param("cutoff") ZonedDateTime cutoff);
+
+    /**
+     * Marks the given sessions OVERDUE if they are still NEW and have expired, and returns the ones that changed.
+     */
+    @Transactional
+    @Query(value = """
+            WITH overdue AS (
+                UPDATE sessions
+                SET session_status         = 'OVERDUE',
+                    session_execution_time = NULL,
+                    version                = version + 1
+                WHERE id IN (:sessionIds)
+                  AND session_status = 'NEW'
+                  AND expires_at <= :now
+                RETURNING *)
+            SELECT * FROM overdue
+            """, nativeQuery = true)
+    List<Session> markOverdueByIds(@Param("sessionIds") List<UUID> sessionIds, @Param("now") ZonedDateTime now);
+
+    /**
+     * Finishes the session if it belongs to the account and is still NEW: COMPLETED if it started after the cutoff,
+     * OVERDUE otherwise. Returns the session only if this call changed it, so concurrent or repeated completions of
+     * the same session are applied at most once.
+     */
+    @Transactional
+    @Query(value = """
+            WITH finished AS (
+                UPDATE sessions
+                SET session_status         = CASE WHEN session_start > :cutoff THEN 'COMPLETED' ELSE 'OVERDUE' END,
+                    session_execution_time = CASE WHEN session_start > :cutoff THEN CAST(:now AS timestamptz) END,
+                    version                = version + 1
+                WHERE id = :sessionId
+                  AND account_id = :accountId
+                  AND session_status = 'NEW'
+                RETURNING *)
+            SELECT * FROM finished
+            """, nativeQuery = true)
+    Optional<Session> finishIfNew(@Param("sessionId") UUID sessionId,
+                                  @Param("accountId") String accountId,
+                                  @Param("cutoff") ZonedDateTime cutoff,
+                                  @Param("now") ZonedDateTime now);
+
+    boolean existsByIdAndAccountId(UUID id, String accountId);
+
+    @Query("SELECT s.id AS id, s.expiresAt AS expiresAt FROM Session s WHERE s.sessionStatus = 'NEW' AND s.expiresAt IS NOT NULL")
+    List<PendingExpiry> findPendingExpiries();
+
     @Transactional
     @Modifying(clearAutomatically = true, flushAutomatically = true)
     @Query("DELETE FROM Session s WHERE s.sessionStart < :cutoffDate")
     int deleteSessionsOlderThan(@Param("cutoffDate") ZonedDateTime cutoffDate);
+
+    interface PendingExpiry {
+        UUID getId();
+
+        ZonedDateTime getExpiresAt();
+    }
 }
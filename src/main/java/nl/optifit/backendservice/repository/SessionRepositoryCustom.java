@@ -0,0 +1,24 @@
+package nl.optifit.backendservice.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Partition maintenance for the range-partitioned sessions table. PostgreSQL only.
+ */
+public interface SessionRepositoryCustom {
+    List<String> findPartitionNames(String parentTable);
+
+    /**
+     * Creates the partition and attaches it to the parent, first moving any rows of its range out of the parent's
+     * default partition.
+     */
+    void createPartition(String parentTable, String defaultPartition, String partition, Instant from, Instant to);
+
+    /**
+     * Detaches the partition from one parent and attaches it to another, dropping its foreign keys on the way.
+     */
+    void movePartition(String partition, String fromParentTable, String toParentTable, Instant from, Instant to);
+
+    void dropPartition(String partition);
+}
@@ -0,0 +1,79 @@
+package nl.optifit.backendservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.List;
+
+public class SessionRepositoryImpl implements SessionRepositoryCustom {
+
+    // Table names are never request input: they are constants or derived from partition dates, so they are safe to
+    // inline into the DDL, which cannot take bind parameters
+    private static final String FIND_PARTITIONS = """
+            SELECT c.relname
+            FROM pg_inherits i
+                     JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = CAST(:parentTable AS regclass)
+            """;
+    private static final String FIND_FOREIGN_KEYS = """
+            SELECT conname
+            FROM pg_constraint
+            WHERE conrelid = CAST(:table AS regclass)
+              AND contype = 'f'
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> findPartitionNames(String parentTable) {
+        return entityManager.createNativeQuery(FIND_PARTITIONS)
+                .setParameter("parentTable", parentTable)
+                .getResultList();
+    }
+
+    @Override
+    public void createPartition(String parentTable, String defaultPartition, String partition, Instant from, Instant to) {
+        execute("CREATE TABLE %s (LIKE %s INCLUDING DEFAULTS INCLUDING CONSTRAINTS)".formatted(partition, parentTable));
+        execute("""
+                WITH moved AS (DELETE FROM %s WHERE session_start >= '%s' AND session_start < '%s' RETURNING *)
+                INSERT INTO %s SELECT * FROM moved
+                """.formatted(defaultPartition, from, to, partition));
+        execute("ALTER TABLE %s ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')".formatted(parentTable, partition, from, to));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void movePartition(String partition, String fromParentTable, String toParentTable, Instant from, Instant to) {
+        execute("ALTER TABLE %s DETACH PARTITION %s".formatted(fromParentTable, partition));
+
+        // Archived sessions must not keep accounts or videos from being deleted
+        List<String> foreignKeys = entityManager.createNativeQuery(FIND_FOREIGN_KEYS)
+                .setParameter("table", partition)
+                .getResultList();
+        foreignKeys.forEach(foreignKey -> execute("ALTER TABLE %s DROP CONSTRAINT \"%s\"".formatted(partition, foreignKey)));
+
+        execute("ALTER TABLE %s ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')".formatted(toParentTable, partition, from, to));
+    }
+
+    @Override
+    public void dropPartition(String partition) {
+        execute("DROP TABLE %s".formatted(partition));
+    }
+
+    /**
+     * Runs the statement on the JDBC connection of the current transaction, bypassing Hibernate's parameter parsing
+     * which would trip over the colons in the timestamp literals.
+     */
+    private void execute(String sql) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            }
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package nl.optifit.backendservice.repository;
+
+import nl.optifit.backendservice.model.SessionScheduleRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SessionScheduleRunRepository extends JpaRepository<SessionScheduleRun, String> {
+}
@@ -12,7 +12,6 @@ import nl.optifit.backendservice.model.Account;
 import nl.optifit.backendservice.model.Biometrics;
 import nl.optifit.backendservice.model.Leaderboard;
 import nl.optifit.backendservice.repository.AccountRepository;
-import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -26,7 +25,8 @@ import java.time.LocalDate;
 import java.time.Period;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -47,12 +47,11 @@ public class AccountService {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.fromString(direction), sortBy));
 
         Page<Account> accounts = accountRepository.findAll(pageable);
+        Map<String, UserRepresentation> usersById = keycloakService.findUsersByIds(accounts.getContent().stream().map(Account::getId).toList());
 
         return accounts.stream()
-                .map(account -> keycloakService.findUserById(account.getId()))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .map(UserResource::toRepresentation)
+                .map(account -> usersById.get(account.getId()))
+                .filter(Objects::nonNull)
                 .map(UserDto::fromUserRepresentation)
                 .collect(Collectors.collectingAndThen(Collectors.toList(), users ->
                         new PagedResponseDto<>(users, page, size, accounts.getTotalElements(), accounts.getTotalPages())));
@@ -61,15 +60,16 @@ public class AccountService {
     @Transactional
     public AccountDto createAccount(String accountId, String timezone) throws IOException {
         log.info("Creating account '{}' with timezone '{}'", accountId, timezone);
+        keycloakService.evictUser(accountId);
+        UserRepresentation user = keycloakService.findUserById(accountId)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+
         Account account = Account.builder().id(accountId).timezone(timezone).build();
-        Leaderboard leaderboard = leaderboardService.createLeaderboardForAccount(account);
+        Leaderboard leaderboard = leaderboardService.createLeaderboardForAccount(account, "%s %s".formatted(user.getFirstName(), user.getLastName()));
         account.setLeaderboard(leaderboard);
         Account savedAccount = accountRepository.save(account);
 
-        UserRepresentation user = keycloakService.findUserById(accountId)
-                .orElseThrow(() -> new NotFoundException("User not found"))
-                .toRepresentation();
-
+        leaderboardService.indexLeaderboard(savedAccount.getLeaderboard());
         driveService.createDriveFolderInRoot(user.getUsername());
 
         return AccountDto.fromAccount(savedAccount);
@@ -79,10 +79,12 @@ public class AccountService {
     public void deleteAccount(String accountId) throws IOException {
         log.info("Deleting account '{}'", accountId);
         accountRepository.deleteById(accountId);
+        leaderboardService.removeFromIndex(accountId);
 
+        // The user is already gone from Keycloak by now, its username can only come from the directory
         UserRepresentation user = keycloakService.findUserById(accountId)
-                .orElseThrow(() -> new NotFoundException("User not found"))
-                .toRepresentation();
+                .orElseThrow(() -> new NotFoundException("User not found"));
+        keycloakService.evictUser(accountId);
 
         driveService.deleteDriveFolderInRoot(user.getUsername());
     }
@@ -92,9 +94,8 @@ public class AccountService {
         return accountRepository.findAll();
     }
 
-    public List<Account> findAllAccountsByTimezone(String timezone) {
-        log.debug("Finding all accounts for timezone '{}'", timezone);
-        return accountRepository.findAllByTimezone(timezone);
+    public List<String> findAllTimezones() {
+        return accountRepository.findDistinctTimezones();
     }
 
     public HealthIndexDto calculateHealthIndex(String accountId) {
@@ -152,9 +153,10 @@ public class AccountService {
     }
 
     public UserHealthProfileDto calculateUserHealthProfile(String accountId) {
-        UserResource userResource = keycloakService.findUserById(accountId).orElse(null);
-        String dateOfBirthString = userResource.toRepresentation().getAttributes().get("dob").stream().findFirst().orElseThrow();
-        String sex = userResource.toRepresentation().getAttributes().get("sex").stream().findFirst().orElseThrow();
+        UserRepresentation user = keycloakService.findUserById(accountId)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+        String dateOfBirthString = user.getAttributes().get("dob").stream().findFirst().orElseThrow();
+        String sex = user.getAttributes().get("sex").stream().findFirst().orElseThrow();
 
         LocalDate dateOfBirth = LocalDate.parse(dateOfBirthString, DATE_OF_BIRTH_FORMATTER);
         int age = Period.between(dateOfBirth, LocalDate.now()).getYears();
@@ -167,5 +169,6 @@ public class AccountService {
     public void deleteAll() {
         log.debug("Deleting all accounts");
         accountRepository.deleteAll();
+        leaderboardService.invalidateIndex();
     }
 }
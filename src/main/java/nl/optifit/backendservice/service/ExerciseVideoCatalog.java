@@ -0,0 +1,51 @@
+package nl.optifit.backendservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.model.ExerciseType;
+import nl.optifit.backendservice.model.ExerciseVideo;
+import nl.optifit.backendservice.repository.ExerciseVideoRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resident lookup table of exercise videos by type and score. The catalog is small and only changes when videos are
+ * bootstrapped, so it is loaded once and dropped by {@link ExerciseVideoService} whenever videos are written.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class ExerciseVideoCatalog {
+
+    private final ExerciseVideoRepository exerciseVideoRepository;
+
+    private volatile Map<ExerciseType, Map<Integer, ExerciseVideo>> videosByTypeAndScore;
+
+    public Optional<ExerciseVideo> find(ExerciseType exerciseType, int score) {
+        return Optional.ofNullable(load().getOrDefault(exerciseType, Map.of()).get(score));
+    }
+
+    public void invalidate() {
+        videosByTypeAndScore = null;
+    }
+
+    private Map<ExerciseType, Map<Integer, ExerciseVideo>> load() {
+        Map<ExerciseType, Map<Integer, ExerciseVideo>> videos = videosByTypeAndScore;
+        if (videos != null) {
+            return videos;
+        }
+
+        videos = new EnumMap<>(ExerciseType.class);
+        for (ExerciseVideo exerciseVideo : exerciseVideoRepository.findAll()) {
+            videos.computeIfAbsent(exerciseVideo.getExerciseType(), type -> new HashMap<>())
+                    .put(exerciseVideo.getScore(), exerciseVideo);
+        }
+        log.debug("Loaded {} exercise video types into catalog", videos.size());
+        videosByTypeAndScore = videos;
+        return videos;
+    }
+}
@@ -14,14 +14,17 @@ import java.util.List;
 public class ExerciseVideoService {
 
     private final ExerciseVideoRepository exerciseVideoRepository;
+    private final ExerciseVideoCatalog exerciseVideoCatalog;
 
     public void saveAll(List<ExerciseVideo> exerciseVideos) {
         log.debug("Saving {} exercise videos", exerciseVideos.size());
         exerciseVideoRepository.saveAll(exerciseVideos);
+        exerciseVideoCatalog.invalidate();
     }
 
     public void deleteAll() {
         log.debug("Deleting all exercise videos");
         exerciseVideoRepository.deleteAll();
+        exerciseVideoCatalog.invalidate();
     }
 }
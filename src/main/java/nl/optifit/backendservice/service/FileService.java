@@ -2,7 +2,8 @@ package nl.optifit.backendservice.service;
 
 import com.google.api.services.drive.model.File;
 import lombok.extern.slf4j.Slf4j;
-import org.keycloak.admin.client.resource.UserResource;
+import nl.optifit.backendservice.concurrency.Bulkheads;
+import nl.optifit.backendservice.model.Account;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
@@ -17,11 +18,12 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
+import static nl.optifit.backendservice.concurrency.Downstream.COSMOS;
+import static nl.optifit.backendservice.concurrency.Downstream.DRIVE;
 
 @Slf4j
 @Service
@@ -39,26 +41,24 @@ public class FileService {
     private final AccountService accountService;
     private final KeycloakService keycloakService;
     private final DriveService driveService;
+    private final Bulkheads bulkheads;
 
-    public FileService(@Qualifier("filesVectorStore") VectorStore filesVectorStore, AccountService accountService, KeycloakService keycloakService, DriveService driveService) {
+    public FileService(@Qualifier("filesVectorStore") VectorStore filesVectorStore, AccountService accountService, KeycloakService keycloakService, DriveService driveService, Bulkheads bulkheads) {
         this.filesVectorStore = filesVectorStore;
         this.accountService = accountService;
         this.keycloakService = keycloakService;
         this.driveService = driveService;
+        this.bulkheads = bulkheads;
     }
 
     public ResponseEntity<String> syncFiles() {
         log.info("Syncing files");
         long startSyncTime = System.nanoTime();
 
+        List<String> accountIds = accountService.findAllAccounts().stream().map(Account::getId).toList();
+        Map<String, UserRepresentation> usersById = keycloakService.findUsersByIds(accountIds);
         try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
-            accountService.findAllAccounts().stream()
-                    .map(account -> keycloakService.findUserById(account.getId()))
-                    .flatMap(Optional::stream)
-                    .map(UserResource::toRepresentation)
-                    .forEach(userRepresentation ->
-                            executor.submit(() -> addUserFilesToCosmos(userRepresentation)));
-
+            usersById.values().forEach(user -> executor.submit(() -> syncFilesForUser(user)));
         }
         log.info("Finished syncing files in {} ms", (System.nanoTime() - startSyncTime) / 1_000_000);
         return ResponseEntity.ok("Files synced successfully");
@@ -70,22 +70,33 @@ public class FileService {
         return filesVectorStore.similaritySearch(searchRequest);
     }
 
+    private void syncFilesForUser(UserRepresentation userRepresentation) {
+        try {
+            addUserFilesToCosmos(userRepresentation);
+        } catch (RuntimeException e) {
+            log.error("Error while syncing files for account '{}': {}", userRepresentation.getId(), e.getMessage(), e);
+        }
+    }
+
     private void addUserFilesToCosmos(UserRepresentation userRepresentation) {
         try {
             log.info("Syncing files for user '{}'", userRepresentation.getUsername());
-            List<File> filesInDrive = driveService.getFilesForUser(userRepresentation.getUsername());
+            List<File> filesInDrive = bulkheads.call(DRIVE, () -> driveService.getFilesForUser(userRepresentation.getUsername()));
 
             SearchRequest searchRequest = buildSearchRequestForAccount(userRepresentation.getId());
 
-            filesVectorStore.similaritySearch(searchRequest).stream()
+            List<String> existingDocumentIds = bulkheads.call(COSMOS, () -> filesVectorStore.similaritySearch(searchRequest)).stream()
                     .map(Document::getId)
-                    .forEach(filesVectorStore::delete);
+                    .toList();
+            if (!existingDocumentIds.isEmpty()) {
+                bulkheads.run(COSMOS, () -> filesVectorStore.delete(existingDocumentIds));
+            }
 
             List<Document> documents = filesInDrive.stream()
                     .map(file -> buildDocumentFromFile(file, userRepresentation.getId()))
                     .toList();
 
-            filesVectorStore.add(documents);
+            bulkheads.run(COSMOS, () -> filesVectorStore.add(documents));
 
             log.info("Files synced for user '{}'", userRepresentation.getUsername());
         } catch (IOException e) {
@@ -113,7 +124,7 @@ public class FileService {
     private Document buildDocumentFromFile(File file, String accountId) {
         return new Document(
                 file.getId(),
-                driveService.readContent(file),
+                bulkheads.call(DRIVE, () -> driveService.readContent(file)),
                 Map.of(
                         ACCOUNT_ID, accountId,
                         VERSION, String.valueOf(file.getVersion())
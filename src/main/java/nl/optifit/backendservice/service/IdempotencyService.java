@@ -0,0 +1,56 @@
+package nl.optifit.backendservice.service;
+
+import jakarta.ws.rs.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.model.IdempotencyKey;
+import nl.optifit.backendservice.model.IdempotencyKeyId;
+import nl.optifit.backendservice.repository.IdempotencyKeyRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Idempotency keys of client requests. A key is claimed in the transaction of the request it guards, so a failed
+ * request releases its key and a retry runs again, while a retry of a committed request replays its outcome.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class IdempotencyService {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+
+    /**
+     * Claims the key for the request.
+     *
+     * @return empty if the request should run, or the recorded outcome if it already ran under this key
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<Boolean> claim(String accountId, String key, String request) {
+        if (idempotencyKeyRepository.claim(accountId, key, request, Instant.now()) == 1) {
+            return Optional.empty();
+        }
+
+        IdempotencyKey existing = idempotencyKeyRepository.findById(new IdempotencyKeyId(accountId, key))
+                .orElseThrow(() -> new IllegalStateException("Idempotency key '%s' disappeared while claiming it".formatted(key)));
+        if (!existing.getRequest().equals(request)) {
+            throw new BadRequestException("Idempotency key '%s' was already used for another request".formatted(key));
+        }
+        log.debug("Replaying request '{}' for idempotency key '{}'", request, key);
+        return Optional.of(Boolean.TRUE.equals(existing.getApplied()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOutcome(String accountId, String key, boolean applied) {
+        idempotencyKeyRepository.recordOutcome(accountId, key, applied);
+    }
+
+    @Transactional
+    public int removeCreatedBefore(Instant cutoff) {
+        return idempotencyKeyRepository.deleteCreatedBefore(cutoff);
+    }
+}
@@ -0,0 +1,103 @@
+package nl.optifit.backendservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.model.JobLease;
+import nl.optifit.backendservice.repository.JobLeaseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Coordinates scheduled jobs between replicas through leases in the job_leases table. A lease is claimed per run key
+ * (e.g. the scheduled fire time), so every run executes once across the cluster, and a run whose owner died is taken
+ * over once its lease expires.
+ */
+@Slf4j
+@Service
+public class JobLeaseService {
+
+    private final JobLeaseRepository jobLeaseRepository;
+    private final Duration leaseDuration;
+    private final String owner;
+
+    public JobLeaseService(JobLeaseRepository jobLeaseRepository,
+                           @Value("${jobs.lease.duration:PT10M}") Duration leaseDuration,
+                           @Value("${HOSTNAME:local}") String hostname) {
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.leaseDuration = leaseDuration;
+        this.owner = "%s-%s".formatted(hostname, UUID.randomUUID().toString().substring(0, 8));
+    }
+
+    /**
+     * Runs the job unless this run has already been completed or is being run by another replica.
+     *
+     * @return whether the job was run here
+     */
+    public boolean runOnce(String name, String runKey, Runnable job) {
+        if (!claim(name, runKey)) {
+            log.debug("Job '{}' run '{}' is completed or owned by another instance", name, runKey);
+            return false;
+        }
+
+        try {
+            job.run();
+            jobLeaseRepository.finish(name, owner, runKey, true, Instant.now());
+            return true;
+        } catch (RuntimeException e) {
+            // Release the lease right away so another replica can retry without waiting for it to expire
+            jobLeaseRepository.finish(name, owner, runKey, false, Instant.now());
+            throw e;
+        }
+    }
+
+    /**
+     * Splits the run into shards that replicas claim one at a time, starting at a random shard, so faster replicas
+     * take over more of the work. A failed shard is left for a retry.
+     *
+     * @return whether all shards of the run have been completed, by this or another replica
+     */
+    public boolean runSharded(String name, String runKey, int shards, IntConsumer shardJob) {
+        int offset = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = (offset + i) % shards;
+            try {
+                runOnce(shardName(name, shard), runKey, () -> shardJob.accept(shard));
+            } catch (RuntimeException e) {
+                log.error("Shard {} of job '{}' run '{}' failed", shard, name, runKey, e);
+            }
+        }
+
+        List<String> shardNames = IntStream.range(0, shards).mapToObj(shard -> shardName(name, shard)).toList();
+        return jobLeaseRepository.countCompleted(shardNames, runKey) == shards;
+    }
+
+    private boolean claim(String name, String runKey) {
+        Instant now = Instant.now();
+        if (jobLeaseRepository.claim(name, owner, runKey, now, now.plus(leaseDuration)) > 0) {
+            return true;
+        }
+        if (jobLeaseRepository.existsById(name)) {
+            return false;
+        }
+
+        try {
+            jobLeaseRepository.saveAndFlush(new JobLease(name, owner, now.plus(leaseDuration), runKey, false));
+            return true;
+        } catch (DataAccessException e) {
+            // Another replica inserted the lease first
+            return false;
+        }
+    }
+
+    private static String shardName(String name, int shard) {
+        return "%s#%d".formatted(name, shard);
+    }
+}
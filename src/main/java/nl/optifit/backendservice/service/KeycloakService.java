@@ -1,31 +1,206 @@
 package nl.optifit.backendservice.service;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import jakarta.ws.rs.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.concurrency.Bulkheads;
+import nl.optifit.backendservice.utility.BatchLoader;
 import org.keycloak.admin.client.Keycloak;
-import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import static nl.optifit.backendservice.concurrency.Downstream.KEYCLOAK;
+
+/**
+ * User lookups are served from the {@link KeycloakUserDirectory}, which is warmed at startup and refreshed in the
+ * background when its entries go stale. Misses go through a {@link BatchLoader}, so concurrent lookups from a request
+ * or a fan-out job are coalesced into a few Keycloak calls.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class KeycloakService {
 
+    private static final int PAGE_SIZE = 500;
+
     @Value("${keycloak.realm.smym}")
     private String realm;
 
     private final Keycloak keycloak;
+    private final Bulkheads bulkheads;
+    private final KeycloakUserDirectory userDirectory;
+    private final BatchLoader<String, UserRepresentation> userLoader;
+    private final ExecutorService revalidationExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public KeycloakService(Keycloak keycloak,
+                           Bulkheads bulkheads,
+                           KeycloakUserDirectory userDirectory,
+                           @Value("${keycloak.loader.window:PT0.01S}") Duration window,
+                           @Value("${keycloak.loader.max-batch-size:100}") int maxBatchSize,
+                           @Value("${keycloak.loader.memo-ttl:PT1M}") Duration memoTtl) {
+        this.keycloak = keycloak;
+        this.bulkheads = bulkheads;
+        this.userDirectory = userDirectory;
+        this.userLoader = new BatchLoader<>("keycloak-users", window, maxBatchSize, memoTtl, this::fetchUsers);
+    }
 
     public UsersResource findAllUsers() {
         return keycloak.realm(realm).users();
     }
 
-    public Optional<UserResource> findUserById(String id) {
-        return Optional.ofNullable(keycloak.realm(realm)
-                .users()
-                .get(id)
-        );
+    public Optional<UserRepresentation> findUserById(String id) {
+        return Optional.ofNullable(findUsersByIds(List.of(id)).get(id));
+    }
+
+    /**
+     * Serves stale users right away and refreshes them in the background, only users missing from the directory are
+     * waited for. Users that could not be loaded are left out, like users that do not exist.
+     *
+     * @return the users that were found, by id
+     */
+    public Map<String, UserRepresentation> findUsersByIds(Collection<String> ids) {
+        Map<String, UserRepresentation> users = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        List<String> stale = new ArrayList<>();
+        for (String id : ids) {
+            KeycloakUserDirectory.Cached cached = userDirectory.lookup(id);
+            if (cached == null) {
+                missing.add(id);
+            } else {
+                users.put(id, cached.user());
+                if (cached.stale()) {
+                    stale.add(id);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            userLoader.loadAll(missing).forEach((id, user) -> user.ifPresent(found -> {
+                userDirectory.put(found);
+                users.put(id, found);
+            }));
+        }
+        revalidate(stale);
+        return users;
+    }
+
+    /**
+     * Pages through the whole realm, refreshing the directory on the way.
+     */
+    public List<UserRepresentation> listAllUsers() {
+        UsersResource users = findAllUsers();
+        List<UserRepresentation> allUsers = new ArrayList<>();
+        List<UserRepresentation> page;
+        int first = 0;
+        do {
+            int offset = first;
+            page = bulkheads.call(KEYCLOAK, () -> users.list(offset, PAGE_SIZE));
+            allUsers.addAll(page);
+            first += PAGE_SIZE;
+        } while (page.size() == PAGE_SIZE);
+        userDirectory.putAll(allUsers);
+        userDirectory.setRealmSize(allUsers.size());
+        return allUsers;
+    }
+
+    /**
+     * Drops the user from the directory and the loader memo, so the next lookup reads it from Keycloak.
+     */
+    public void evictUser(String id) {
+        userDirectory.evict(id);
+        userLoader.clear(id);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUserDirectory() {
+        try {
+            long start = System.nanoTime();
+            List<UserRepresentation> users = listAllUsers();
+            log.info("Warmed user directory with {} users in {} ms", users.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Could not warm user directory, users will be loaded on first use", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        revalidationExecutor.shutdownNow();
+        userLoader.close();
+    }
+
+    private void revalidate(List<String> ids) {
+        List<String> claimed = ids.stream().filter(userDirectory::startRevalidation).toList();
+        if (claimed.isEmpty()) {
+            return;
+        }
+        revalidationExecutor.submit(() -> {
+            try {
+                // Users that failed to load are left out and keep being served until the next lookup
+                userLoader.loadAll(claimed).forEach((id, user) -> user.ifPresentOrElse(userDirectory::put, () -> userDirectory.evict(id)));
+            } finally {
+                claimed.forEach(userDirectory::finishRevalidation);
+            }
+        });
+    }
+
+    /**
+     * Keycloak cannot query users by a set of ids. When the batch holds more ids than the realm has pages, paging
+     * through the realm takes fewer calls than fetching the users one by one, and primes the memo with every user.
+     */
+    private Map<String, Optional<UserRepresentation>> fetchUsers(Set<String> ids) {
+        UsersResource users = findAllUsers();
+        if (ids.size() > 1) {
+            int realmSize = userDirectory.realmSize().orElseGet(() -> countUsers(users));
+            if (Math.ceilDiv(realmSize, PAGE_SIZE) < ids.size()) {
+                return fetchAllUsers(ids);
+            }
+        }
+
+        Map<String, Optional<UserRepresentation>> found = new ConcurrentHashMap<>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            ids.forEach(id -> executor.submit(() -> {
+                try {
+                    found.put(id, Optional.of(bulkheads.call(KEYCLOAK, () -> users.get(id).toRepresentation())));
+                } catch (NotFoundException e) {
+                    found.put(id, Optional.empty());
+                } catch (RuntimeException e) {
+                    log.warn("Could not fetch user '{}' from Keycloak: {}", id, e.getMessage());
+                }
+            }));
+        }
+        log.debug("Fetched {} of {} users from Keycloak one by one", found.size(), ids.size());
+        return found;
+    }
+
+    private int countUsers(UsersResource users) {
+        int realmSize = bulkheads.call(KEYCLOAK, users::count);
+        userDirectory.setRealmSize(realmSize);
+        return realmSize;
+    }
+
+    private Map<String, Optional<UserRepresentation>> fetchAllUsers(Set<String> ids) {
+        List<UserRepresentation> allUsers = listAllUsers();
+
+        Map<String, Optional<UserRepresentation>> found = new HashMap<>();
+        allUsers.forEach(user -> found.put(user.getId(), Optional.of(user)));
+        ids.forEach(id -> found.putIfAbsent(id, Optional.empty()));
+        log.debug("Fetched {} users from Keycloak for a batch of {}", allUsers.size(), ids.size());
+        return found;
     }
 }
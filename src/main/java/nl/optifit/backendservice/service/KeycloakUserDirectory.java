@@ -0,0 +1,163 @@
+package nl.optifit.backendservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded in-process directory of Keycloak users, holding only the fields this application reads. Entries older than
+ * the TTL are still served but reported as stale, so {@link KeycloakService} can refresh them in the background;
+ * entries past the maximum staleness are dropped. Invalidation is local to this instance, on other instances a
+ * change shows up once the entry goes stale. The directory also remembers the size of the realm for the TTL, so
+ * batch lookups can choose between paging the realm and fetching users one by one without counting it each time.
+ */
+@Component
+public class KeycloakUserDirectory {
+
+    private static final Set<String> ATTRIBUTES = Set.of("dob", "sex");
+
+    private final Map<String, Entry> entries;
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final long ttlNanos;
+    private final long maxStaleNanos;
+    private volatile RealmSize realmSize;
+
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Timer age;
+
+    public KeycloakUserDirectory(MeterRegistry meterRegistry,
+                                 @Value("${keycloak.directory.max-entries:10000}") int maxEntries,
+                                 @Value("${keycloak.directory.ttl:PT15M}") Duration ttl,
+                                 @Value("${keycloak.directory.max-stale:PT24H}") Duration maxStale) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.ttlNanos = ttl.toNanos();
+        this.maxStaleNanos = ttl.plus(maxStale).toNanos();
+        this.hits = meterRegistry.counter("keycloak.directory.lookups", "result", "hit");
+        this.staleHits = meterRegistry.counter("keycloak.directory.lookups", "result", "stale");
+        this.misses = meterRegistry.counter("keycloak.directory.lookups", "result", "miss");
+        this.age = Timer.builder("keycloak.directory.age")
+                .description("Age of the directory entries served")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("keycloak.directory.size", entries, this::size);
+    }
+
+    /**
+     * @return the cached user, or null when the directory has no usable entry for the id
+     */
+    public Cached lookup(String id) {
+        long now = System.nanoTime();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(id);
+            if (entry != null && now - entry.loadedAt() > maxStaleNanos) {
+                entries.remove(id);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        long entryAge = now - entry.loadedAt();
+        age.record(entryAge, TimeUnit.NANOSECONDS);
+        boolean stale = entryAge > ttlNanos;
+        (stale ? staleHits : hits).increment();
+        return new Cached(entry.user(), stale);
+    }
+
+    public void put(UserRepresentation user) {
+        putAll(List.of(user));
+    }
+
+    public void putAll(Collection<UserRepresentation> users) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            users.forEach(user -> entries.put(user.getId(), new Entry(project(user), now)));
+        }
+    }
+
+    public void evict(String id) {
+        synchronized (entries) {
+            entries.remove(id);
+        }
+    }
+
+    /**
+     * @return the number of users in the realm, or empty when it was not counted within the TTL
+     */
+    public OptionalInt realmSize() {
+        RealmSize counted = realmSize;
+        if (counted == null || System.nanoTime() - counted.countedAt() > ttlNanos) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(counted.users());
+    }
+
+    public void setRealmSize(int users) {
+        realmSize = new RealmSize(users, System.nanoTime());
+    }
+
+    /**
+     * Claims the revalidation of an entry, so concurrent readers of a stale entry refresh it only once.
+     */
+    public boolean startRevalidation(String id) {
+        return revalidating.add(id);
+    }
+
+    public void finishRevalidation(String id) {
+        revalidating.remove(id);
+    }
+
+    private int size(Map<String, Entry> entries) {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static UserRepresentation project(UserRepresentation user) {
+        UserRepresentation projection = new UserRepresentation();
+        projection.setId(user.getId());
+        projection.setUsername(user.getUsername());
+        projection.setEmail(user.getEmail());
+        projection.setFirstName(user.getFirstName());
+        projection.setLastName(user.getLastName());
+        if (user.getAttributes() != null) {
+            projection.setAttributes(user.getAttributes().entrySet().stream()
+                    .filter(attribute -> ATTRIBUTES.contains(attribute.getKey()) && attribute.getValue() != null)
+                    .collect(Collectors.toMap(Map.Entry::getKey, attribute -> List.copyOf(attribute.getValue()))));
+        }
+        return projection;
+    }
+
+    public record Cached(UserRepresentation user, boolean stale) {
+    }
+
+    private record Entry(UserRepresentation user, long loadedAt) {
+    }
+
+    private record RealmSize(int users, long countedAt) {
+    }
+}
@@ -0,0 +1,69 @@
+package nl.optifit.backendservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.dto.LeaderboardDeltaDto;
+import nl.optifit.backendservice.dto.LeaderboardDto;
+import nl.optifit.backendservice.model.LeaderboardSortField;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static nl.optifit.backendservice.configuration.WebSocketConfiguration.LEADERBOARD_RESET_TOPIC;
+import static nl.optifit.backendservice.configuration.WebSocketConfiguration.LEADERBOARD_TOPIC;
+
+/**
+ * Pushes leaderboard changes to STOMP subscribers. Changes are coalesced per account and flushed as at most one
+ * frame per interval, so a cron run completing hundreds of sessions results in a single message. Like the leaderboard
+ * pages, the deltas on the shared topic leave out the Keycloak account ids.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class LeaderboardPublisher {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final LeaderboardRankingIndex rankingIndex;
+
+    private final Map<String, LeaderboardDto> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean resetPending = new AtomicBoolean();
+
+    public void publish(String accountId, LeaderboardDto leaderboard) {
+        pending.put(accountId, leaderboard);
+    }
+
+    public void publishReset() {
+        pending.clear();
+        resetPending.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${leaderboard.push.interval:1000}")
+    public void flush() {
+        if (resetPending.compareAndSet(true, false)) {
+            log.debug("Publishing leaderboard reset");
+            messagingTemplate.convertAndSend(LEADERBOARD_RESET_TOPIC, Map.of("reset", true));
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<LeaderboardDeltaDto> deltas = new ArrayList<>(pending.size());
+        for (String accountId : List.copyOf(pending.keySet())) {
+            LeaderboardDto leaderboard = pending.remove(accountId);
+            if (leaderboard != null) {
+                Integer rank = rankingIndex.rankOf(accountId, LeaderboardSortField.SCORE, true).orElse(null);
+                deltas.add(LeaderboardDeltaDto.fromLeaderboardDto(rank, leaderboard));
+            }
+        }
+
+        log.debug("Publishing {} leaderboard deltas", deltas.size());
+        messagingTemplate.convertAndSend(LEADERBOARD_TOPIC, deltas);
+    }
+}
@@ -0,0 +1,234 @@
+package nl.optifit.backendservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.dto.LeaderboardDto;
+import nl.optifit.backendservice.dto.LeaderboardWindowDto;
+import nl.optifit.backendservice.model.LeaderboardSortField;
+import nl.optifit.backendservice.utility.OrderStatisticTree;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Resident ranking of all leaderboards, kept in one order-statistic tree per sort field so that any page can be
+ * served in O(log n + page size). The index is loaded once and afterwards maintained in place by
+ * {@link LeaderboardService} whenever leaderboards are written.
+ */
+@Slf4j
+@Component
+public class LeaderboardRankingIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, RankedLeaderboard> leaderboardsByAccountId = new HashMap<>();
+    private final Map<LeaderboardSortField, OrderStatisticTree<RankedLeaderboard>> trees = new EnumMap<>(LeaderboardSortField.class);
+    private volatile boolean loaded;
+
+    public LeaderboardRankingIndex() {
+        for (LeaderboardSortField field : LeaderboardSortField.values()) {
+            trees.put(field, new OrderStatisticTree<>(comparatorFor(field)));
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Loads the index from the given source unless it has been loaded already. Writers are blocked while loading,
+     * so updates committed during the load are applied on top of the loaded state instead of being lost.
+     */
+    public void loadIfAbsent(Supplier<Map<String, LeaderboardDto>> source) {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            long start = System.nanoTime();
+            Map<String, LeaderboardDto> leaderboards = source.get();
+            leaderboardsByAccountId.clear();
+            trees.values().forEach(OrderStatisticTree::clear);
+            leaderboards.forEach(this::insert);
+            loaded = true;
+            log.info("Loaded {} leaderboards into ranking index in {} ms", leaderboards.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            leaderboardsByAccountId.clear();
+            trees.values().forEach(OrderStatisticTree::clear);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<LeaderboardDto> find(String accountId) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(leaderboardsByAccountId.get(accountId)).map(RankedLeaderboard::leaderboard);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the 1-based position of the account for the given ordering, if it is indexed.
+     */
+    public Optional<Integer> rankOf(String accountId, LeaderboardSortField sortField, boolean descending) {
+        lock.readLock().lock();
+        try {
+            RankedLeaderboard ranked = leaderboardsByAccountId.get(accountId);
+            if (ranked == null) {
+                return Optional.empty();
+            }
+            int ascendingRank = trees.get(sortField).rank(ranked);
+            return Optional.of(descending ? leaderboardsByAccountId.size() - ascendingRank : ascendingRank + 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the account together with up to {@code window} neighbours on either side, in ranking order.
+     */
+    public Optional<LeaderboardWindowDto> window(String accountId, LeaderboardSortField sortField, boolean descending, int window) {
+        lock.readLock().lock();
+        try {
+            RankedLeaderboard ranked = leaderboardsByAccountId.get(accountId);
+            if (ranked == null) {
+                return Optional.empty();
+            }
+            int total = leaderboardsByAccountId.size();
+            int ascendingRank = trees.get(sortField).rank(ranked);
+            int position = descending ? total - 1 - ascendingRank : ascendingRank;
+            int from = Math.max(0, position - window);
+
+            List<LeaderboardDto> content = trees.get(sortField).range(from, position - from + window + 1, descending).stream()
+                    .map(RankedLeaderboard::leaderboard)
+                    .toList();
+            return Optional.of(new LeaderboardWindowDto(position + 1, from + 1, total, content));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void upsert(String accountId, LeaderboardDto leaderboard) {
+        upsertAll(Map.of(accountId, leaderboard));
+    }
+
+    public void upsertAll(Map<String, LeaderboardDto> leaderboards) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            leaderboards.forEach((accountId, leaderboard) -> {
+                remove(accountId);
+                insert(accountId, leaderboard);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mirrors a leaderboard reset in place: scores drop to zero and only the given account keeps the winner flag.
+     */
+    public void applyReset(String winnerAccountId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            List<RankedLeaderboard> existing = List.copyOf(leaderboardsByAccountId.values());
+            leaderboardsByAccountId.clear();
+            trees.values().forEach(OrderStatisticTree::clear);
+            existing.forEach(ranked -> {
+                LeaderboardDto leaderboard = ranked.leaderboard();
+                insert(ranked.accountId(), new LeaderboardDto(
+                        leaderboard.fullName(),
+                        0,
+                        leaderboard.completionRate(),
+                        leaderboard.currentStreak(),
+                        leaderboard.longestStreak(),
+                        ranked.accountId().equals(winnerAccountId)));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(String accountId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            remove(accountId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Page<LeaderboardDto> page(LeaderboardSortField sortField, boolean descending, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page, size);
+        lock.readLock().lock();
+        try {
+            List<LeaderboardDto> content = trees.get(sortField).range((int) pageRequest.getOffset(), size, descending).stream()
+                    .map(RankedLeaderboard::leaderboard)
+                    .toList();
+            return new PageImpl<>(content, pageRequest, leaderboardsByAccountId.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(String accountId, LeaderboardDto leaderboard) {
+        RankedLeaderboard ranked = new RankedLeaderboard(accountId, leaderboard);
+        leaderboardsByAccountId.put(accountId, ranked);
+        trees.values().forEach(tree -> tree.insert(ranked));
+    }
+
+    private void remove(String accountId) {
+        RankedLeaderboard existing = leaderboardsByAccountId.remove(accountId);
+        if (existing != null) {
+            trees.values().forEach(tree -> tree.remove(existing));
+        }
+    }
+
+    private static Comparator<RankedLeaderboard> comparatorFor(LeaderboardSortField sortField) {
+        Comparator<LeaderboardDto> comparator = switch (sortField) {
+            case SCORE -> Comparator.comparing(LeaderboardDto::score, Comparator.nullsLast(Integer::compareTo));
+            case FULL_NAME -> Comparator.comparing(LeaderboardDto::fullName, Comparator.nullsLast(String::compareTo));
+            case COMPLETION_RATE -> Comparator.comparingDouble(LeaderboardDto::completionRate);
+            case CURRENT_STREAK -> Comparator.comparingInt(LeaderboardDto::currentStreak);
+            case LONGEST_STREAK -> Comparator.comparingInt(LeaderboardDto::longestStreak);
+            case RECENT_WINNER -> Comparator.comparing(LeaderboardDto::recentWinner);
+        };
+
+        // The account id makes the order total, so equal scores still map to distinct tree positions
+        return Comparator.comparing(RankedLeaderboard::leaderboard, comparator)
+                .thenComparing(RankedLeaderboard::accountId);
+    }
+
+    private record RankedLeaderboard(String accountId, LeaderboardDto leaderboard) {
+    }
+}
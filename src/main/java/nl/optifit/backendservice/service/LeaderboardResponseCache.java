@@ -0,0 +1,139 @@
+package nl.optifit.backendservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of leaderboard responses, versioned by the persisted state of the leaderboards. {@link LeaderboardService}
+ * reads that state at most once per check interval, so every replica hands out the same ETag for the same
+ * leaderboards and picks up the writes of the others within the interval. Writes on this replica drop the cached
+ * responses right away.
+ */
+@Slf4j
+@Component
+public class LeaderboardResponseCache {
+
+    private final long checkIntervalNanos;
+    private final Map<String, Object> responses;
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile String version = "";
+    private volatile long checkedAt;
+    private volatile boolean checked;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+
+    public LeaderboardResponseCache(MeterRegistry meterRegistry,
+                                    @Value("${leaderboard.response-cache.max-entries:256}") int maxEntries,
+                                    @Value("${leaderboard.response-cache.check-interval:PT5S}") Duration checkInterval) {
+        this.checkIntervalNanos = checkInterval.toNanos();
+        this.responses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = meterRegistry.counter("leaderboard.response.cache", "result", "hit");
+        this.misses = meterRegistry.counter("leaderboard.response.cache", "result", "miss");
+        this.notModified = meterRegistry.counter("leaderboard.response.cache", "result", "not_modified");
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public boolean isCheckDue() {
+        return !checked || System.nanoTime() - checkedAt >= checkIntervalNanos;
+    }
+
+    /**
+     * Records the persisted state of the leaderboards, dropping all cached responses when it changed.
+     *
+     * @return whether the state changed since the last check
+     */
+    public boolean update(String persistedState) {
+        String persistedVersion = DigestUtils.md5DigestAsHex(persistedState.getBytes(StandardCharsets.UTF_8));
+        synchronized (responses) {
+            checkedAt = System.nanoTime();
+            checked = true;
+            if (persistedVersion.equals(version)) {
+                return false;
+            }
+            log.debug("Leaderboard version changed from '{}' to '{}'", version, persistedVersion);
+            version = persistedVersion;
+            invalidations.incrementAndGet();
+            responses.clear();
+            return true;
+        }
+    }
+
+    /**
+     * Drops the cached responses after a write on this replica. The version follows with the next check.
+     */
+    public void invalidate() {
+        synchronized (responses) {
+            invalidations.incrementAndGet();
+            responses.clear();
+        }
+    }
+
+    public String etag(String version) {
+        return "W/\"leaderboard-%s\"".formatted(version);
+    }
+
+    /**
+     * Returns true when the If-None-Match header contains the ETag of the given version, counting it as a 304.
+     */
+    public boolean isNotModified(String ifNoneMatch, String version) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String etag = etag(version);
+        boolean matches = Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(candidate -> candidate.equals("*") || candidate.equals(etag) || ("W/" + candidate).equals(etag));
+        if (matches) {
+            notModified.increment();
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the response cached for the key at the given version, computing it on a miss. Responses computed while
+     * the cache was invalidated are returned but not cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String version, String key, Supplier<T> loader) {
+        String versionedKey = version + ":" + key;
+        synchronized (responses) {
+            Object cached = responses.get(versionedKey);
+            if (cached != null) {
+                hits.increment();
+                return (T) cached;
+            }
+        }
+
+        misses.increment();
+        long invalidation = invalidations.get();
+        T response = loader.get();
+        synchronized (responses) {
+            if (response != null && this.version.equals(version) && invalidations.get() == invalidation) {
+                responses.put(versionedKey, response);
+            }
+        }
+        return response;
+    }
+}
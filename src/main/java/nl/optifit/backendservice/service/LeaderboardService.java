@@ -4,68 +4,126 @@ import jakarta.ws.rs.NotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import nl.optifit.backendservice.dto.LeaderboardDto;
+import nl.optifit.backendservice.dto.LeaderboardResetDto;
+import nl.optifit.backendservice.dto.LeaderboardSnapshotDto;
+import nl.optifit.backendservice.dto.LeaderboardWindowDto;
 import nl.optifit.backendservice.dto.PagedResponseDto;
 import nl.optifit.backendservice.model.Account;
 import nl.optifit.backendservice.model.Leaderboard;
+import nl.optifit.backendservice.model.LeaderboardSnapshot;
+import nl.optifit.backendservice.model.LeaderboardSortField;
 import nl.optifit.backendservice.model.Session;
 import nl.optifit.backendservice.model.SessionStatus;
 import nl.optifit.backendservice.repository.LeaderboardRepository;
-import org.jspecify.annotations.NonNull;
-import org.keycloak.admin.client.resource.UserResource;
+import nl.optifit.backendservice.repository.LeaderboardSnapshotRepository;
 import org.keycloak.representations.idm.UserRepresentation;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.function.Function;
-import java.util.stream.Collector;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static nl.optifit.backendservice.model.SessionStatus.COMPLETED;
 import static nl.optifit.backendservice.model.SessionStatus.OVERDUE;
+import static nl.optifit.backendservice.utility.TransactionUtil.afterCommit;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class LeaderboardService {
+
+    private static final int MAX_WINDOW = 50;
+
+    @Value("${leaderboard.ranking.in-memory:true}")
+    private boolean inMemoryRanking;
+
     private final KeycloakService keycloakService;
     private final LeaderboardRepository leaderboardRepository;
+    private final LeaderboardSnapshotRepository leaderboardSnapshotRepository;
+    private final LeaderboardRankingIndex rankingIndex;
+    private final LeaderboardPublisher leaderboardPublisher;
+    private final LeaderboardResponseCache leaderboardResponseCache;
+
+    private final Set<String> unknownAccountIds = ConcurrentHashMap.newKeySet();
 
     public PagedResponseDto<LeaderboardDto> findAll(int page, int size, String direction, String sortBy) {
         log.debug("Retrieving leaderboard with page '{}', size '{}', direction '{}', sortBy '{}'", page, size, direction, sortBy);
 
-        List<UserRepresentation> users = keycloakService.findAllUsers().list();
-        List<String> userIds = users.stream().map(UserRepresentation::getId).toList();
+        LeaderboardSortField sortField = LeaderboardSortField.fromProperty(sortBy);
+
+        if (inMemoryRanking) {
+            rankingIndex.loadIfAbsent(this::loadRankingIndex);
+            return PagedResponseDto.fromPage(rankingIndex.page(sortField, "desc".equalsIgnoreCase(direction), page, size));
+        }
+
+        Sort sort = Sort.by(Sort.Direction.fromString(direction), sortField.getEntityProperty()).and(Sort.by("accountId"));
+        Page<LeaderboardDto> leaderboardDtoPage = leaderboardRepository.findAll(PageRequest.of(page, size, sort))
+                .map(LeaderboardDto::fromLeaderboard);
 
-        Map<String, Leaderboard> leaderBoardByAccountId = leaderboardRepository.findAllByAccountIdIn(userIds)
-                .stream()
-                .collect(Collectors.toMap(Leaderboard::getAccountId, Function.identity()));
+        return PagedResponseDto.fromPage(leaderboardDtoPage);
+    }
+
+    public LeaderboardWindowDto findWindowForAccount(String accountId, int window, String direction, String sortBy) {
+        log.debug("Retrieving leaderboard window of '{}' around account '{}', direction '{}', sortBy '{}'", window, accountId, direction, sortBy);
 
-        return users.stream()
-                .map(mapUserToLeaderboard(leaderBoardByAccountId))
-                .filter(Objects::nonNull)
-                .sorted(resolveSort(sortBy, direction))
-                .collect(collectAndMapToPagedResponse(page, size));
+        LeaderboardSortField sortField = LeaderboardSortField.fromProperty(sortBy);
+        boolean descending = "desc".equalsIgnoreCase(direction);
+        int boundedWindow = Math.clamp(window, 0, MAX_WINDOW);
+
+        Optional<LeaderboardWindowDto> leaderboardWindow;
+        if (inMemoryRanking) {
+            rankingIndex.loadIfAbsent(this::loadRankingIndex);
+            leaderboardWindow = rankingIndex.window(accountId, sortField, descending, boundedWindow);
+        } else {
+            leaderboardWindow = leaderboardRepository.findWindowAroundAccount(accountId, sortField, descending, boundedWindow);
+        }
+
+        return leaderboardWindow.orElseThrow(() -> new NotFoundException("No leaderboard found for account"));
     }
 
     public LeaderboardDto findByRecentWinner() {
         Optional<Leaderboard> recentWinner = leaderboardRepository.findByRecentWinnerTrue();
-        return recentWinner.map(leaderboard -> {
-            UserResource user = keycloakService.findUserById(leaderboard.getAccount().getId()).orElseThrow(() -> new RuntimeException("User not found"));
-            return LeaderboardDto.fromLeaderboard(String.format("%s %s", user.toRepresentation().getFirstName(), user.toRepresentation().getLastName()), leaderboard);
-        }).orElseThrow(() -> new NotFoundException("No recent winner found"));
+        return recentWinner.map(LeaderboardDto::fromLeaderboard)
+                .orElseThrow(() -> new NotFoundException("No recent winner found"));
+    }
+
+    public PagedResponseDto<LeaderboardSnapshotDto> findHistory(LocalDateTime periodEnd, int page, int size) {
+        log.debug("Retrieving leaderboard history for period end '{}' with page '{}', size '{}'", periodEnd, page, size);
+        Sort sort = Sort.by(Sort.Order.desc("periodEnd"), Sort.Order.desc("score"), Sort.Order.asc("accountId"));
+        Pageable pageable = PageRequest.of(page, size, sort);
+
+        Page<LeaderboardSnapshot> snapshots = periodEnd == null
+                ? leaderboardSnapshotRepository.findAll(pageable)
+                : leaderboardSnapshotRepository.findAllByPeriodEnd(pageable, periodEnd);
+
+        return PagedResponseDto.fromPage(snapshots.map(LeaderboardSnapshotDto::fromLeaderboardSnapshot));
+    }
+
+    public PagedResponseDto<LeaderboardSnapshotDto> findPastWinners(int page, int size) {
+        log.debug("Retrieving past leaderboard winners with page '{}', size '{}'", page, size);
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "periodEnd"));
+        Page<LeaderboardSnapshotDto> winners = leaderboardSnapshotRepository.findAllByWinnerTrue(pageable)
+                .map(LeaderboardSnapshotDto::fromLeaderboardSnapshot);
+
+        return PagedResponseDto.fromPage(winners);
     }
 
     public void updateLeaderboard(Session latestSession) {
@@ -77,11 +135,35 @@ public class LeaderboardService {
         Leaderboard updatedLeaderboard = updateStreak(latestSession, leaderboard);
 
         leaderboardRepository.save(updatedLeaderboard);
+        afterCommit(() -> onLeaderboardsChanged(List.of(updatedLeaderboard)));
+    }
+
+    /**
+     * Applies the given sessions to their leaderboards in one pass: every affected leaderboard is loaded once, all
+     * of its sessions are applied in start order and the results are written back in a single batch.
+     *
+     * @return the number of leaderboards that were updated
+     */
+    @Transactional
+    public int updateLeaderboards(List<Session> sessions) {
+        Map<String, List<Session>> sessionsByAccountId = sessions.stream()
+                .sorted(Comparator.comparing(Session::getSessionStart))
+                .collect(Collectors.groupingBy(session -> session.getAccount().getId(), LinkedHashMap::new, Collectors.toList()));
+        log.debug("Updating leaderboards for {} accounts from {} sessions", sessionsByAccountId.size(), sessions.size());
+
+        List<Leaderboard> leaderboards = leaderboardRepository.findAllByAccountIdIn(List.copyOf(sessionsByAccountId.keySet()));
+        leaderboards.forEach(leaderboard -> sessionsByAccountId.get(leaderboard.getAccountId())
+                .forEach(session -> updateStreak(session, leaderboard)));
+
+        List<Leaderboard> updatedLeaderboards = leaderboardRepository.saveAll(leaderboards);
+        afterCommit(() -> onLeaderboardsChanged(updatedLeaderboards));
+        return updatedLeaderboards.size();
     }
 
-    public Leaderboard createLeaderboardForAccount(Account account) {
+    public Leaderboard createLeaderboardForAccount(Account account, String displayName) {
         return Leaderboard.builder()
                 .account(account)
+                .displayName(displayName)
                 .lastUpdated(LocalDateTime.now())
                 .score(0)
                 .completionRate(0.0)
@@ -90,144 +172,160 @@ public class LeaderboardService {
                 .build();
     }
 
-    public double calculateSessionCompletionRate(Account account, Leaderboard leaderboard) {
-        LocalDateTime resetAt = leaderboard.getResetAt();
-        LocalDateTime relevantDateTime = resetAt == null ? leaderboard.getLastUpdated() : resetAt;
-        ZonedDateTime relevantZonedDateTime = relevantDateTime.atZone(ZoneId.of("Europe/Amsterdam"));
+    public void indexLeaderboard(Leaderboard leaderboard) {
+        afterCommit(() -> onLeaderboardsChanged(List.of(leaderboard)));
+    }
+
+    public void removeFromIndex(String accountId) {
+        afterCommit(() -> {
+            rankingIndex.delete(accountId);
+            leaderboardResponseCache.invalidate();
+        });
+    }
+
+    /**
+     * Returns the version of the persisted leaderboards that responses are cached and tagged with, checking it at most
+     * once per check interval. When it changed, possibly on another replica, the ranking index is reloaded on the next
+     * read.
+     */
+    public String responseVersion() {
+        if (leaderboardResponseCache.isCheckDue() && leaderboardResponseCache.update(leaderboardRepository.findState())) {
+            rankingIndex.invalidate();
+        }
+        return leaderboardResponseCache.version();
+    }
+
+    public void invalidateIndex() {
+        rankingIndex.invalidate();
+        leaderboardResponseCache.invalidate();
+    }
 
-        List<Session> relevantSessions = account.getSessions().stream()
-                .filter(session -> session.getSessionStart().isAfter(relevantZonedDateTime))
-                .toList();
+    public ResponseEntity<String> syncDisplayNames() {
+        int updated = updateDisplayNames();
+        invalidateIndex();
+        return ResponseEntity.ok("Updated %d leaderboard display names".formatted(updated));
+    }
 
-        long totalSessions = relevantSessions.size();
-        long completedSessions = relevantSessions.stream()
-                .map(Session::getSessionExecutionTime)
-                .filter(Objects::nonNull)
-                .count();
+    public double calculateSessionCompletionRate(Leaderboard leaderboard) {
+        int totalSessions = leaderboard.getSessionsSinceReset();
+        int completedSessions = leaderboard.getCompletedSinceReset();
 
         return totalSessions > 0
                 ? (double) completedSessions / totalSessions * 100
                 : 0;
     }
 
-    public void resetLeaderboard() {
+    @Transactional
+    public LeaderboardResetDto resetLeaderboard() {
         log.info("Resetting leaderboards");
-        LocalDateTime now = LocalDateTime.now();
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
 
-        List<Leaderboard> leaderboards = leaderboardRepository.findAll();
-        if (leaderboards.isEmpty()) {
+        Optional<String> recentWinner = leaderboardRepository.findRandomTopScoringAccountId();
+        if (recentWinner.isEmpty()) {
             log.warn("No leaderboards found");
-            return;
+            return new LeaderboardResetDto(null, 0, 0, (System.nanoTime() - start) / 1_000_000);
         }
 
-        String recentWinner = findRecentWinner(leaderboards);
-
-        leaderboards.forEach(leaderboard -> {
-            boolean isRecentWinner = leaderboard.getAccountId().equalsIgnoreCase(recentWinner);
-
-            leaderboard.setScore(0);
-            leaderboard.setRecentWinner(isRecentWinner);
-            leaderboard.setLastUpdated(now);
-            leaderboard.setResetAt(now);
+        int snapshotCount = leaderboardSnapshotRepository.snapshotAll(now, recentWinner.get());
+        int resetCount = leaderboardRepository.resetAll(recentWinner.get(), now);
+        afterCommit(() -> {
+            rankingIndex.applyReset(recentWinner.get());
+            leaderboardResponseCache.invalidate();
+            leaderboardPublisher.publishReset();
         });
 
-        leaderboardRepository.saveAll(leaderboards);
-        log.info("Leaderboard reset complete");
+        LeaderboardResetDto result = new LeaderboardResetDto(recentWinner.get(), snapshotCount, resetCount, (System.nanoTime() - start) / 1_000_000);
+        log.info("Leaderboard reset complete: {} leaderboards snapshotted and {} reset in {} ms, recent winner '{}'",
+                result.snapshotCount(), result.resetCount(), result.durationMs(), result.winnerAccountId());
+        return result;
     }
 
     private Leaderboard updateStreak(Session latestSession, Leaderboard leaderboard) {
-        Account account = latestSession.getAccount();
         SessionStatus sessionStatus = latestSession.getSessionStatus();
 
         if (sessionStatus.equals(COMPLETED)) {
-            leaderboard.setScore(calculateScore(leaderboard.getScore(), latestSession.getSessionStart(), latestSession.getSessionExecutionTime()));
+            leaderboard.setScore(calculateScore(leaderboard.getScore(), latestSession));
             leaderboard.setCurrentStreak(leaderboard.getCurrentStreak() + 1);
             leaderboard.setLongestStreak(Math.max(leaderboard.getCurrentStreak(), leaderboard.getLongestStreak()));
+            leaderboard.setSessionsSinceReset(leaderboard.getSessionsSinceReset() + 1);
+            leaderboard.setCompletedSinceReset(leaderboard.getCompletedSinceReset() + 1);
         }
         if (sessionStatus.equals(OVERDUE)) {
-            leaderboard.setScore(calculateScore(leaderboard.getScore(), latestSession.getSessionStart(), latestSession.getSessionExecutionTime()));
+            leaderboard.setScore(calculateScore(leaderboard.getScore(), latestSession));
             leaderboard.setCurrentStreak(0);
+            leaderboard.setSessionsSinceReset(leaderboard.getSessionsSinceReset() + 1);
         }
-        leaderboard.setCompletionRate(calculateSessionCompletionRate(account, leaderboard));
+        leaderboard.setCompletionRate(calculateSessionCompletionRate(leaderboard));
         leaderboard.setLastUpdated(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
 
         return leaderboard;
     }
 
-    private static String findRecentWinner(List<Leaderboard> leaderboards) {
-        List<Leaderboard> sorted = sortLeaderboardsByScore(leaderboards);
-
-        Leaderboard top = sorted.getFirst();
+    static int calculateScore(Integer currentScore, Session session) {
+        int score = currentScore == null ? 0 : currentScore;
+        // A missed session earns nothing, and has no execution time to score
+        if (session.getSessionStatus() != COMPLETED) {
+            return score;
+        }
 
-        List<Leaderboard> topCandidates = sorted.stream()
-                .filter(l -> Objects.equals(l.getScore(), top.getScore()))
-                .toList();
+        long totalSeconds = 3600;
+        long elapsedSeconds = Duration.between(session.getSessionStart(), session.getSessionExecutionTime()).getSeconds();
+        elapsedSeconds = Math.clamp(elapsedSeconds, 0, totalSeconds);
+        long remainingSeconds = totalSeconds - elapsedSeconds;
 
-        Leaderboard winner = topCandidates.size() == 1
-                ? topCandidates.getFirst()
-                : topCandidates.get(ThreadLocalRandom.current().nextInt(topCandidates.size()));
+        int sessionScore = (int) ((remainingSeconds * 100) / totalSeconds);
+        int sessionScoreComputed = Math.max(sessionScore, 25); // If score below 25, then just return 25
 
-        return winner.getAccountId();
+        return score + sessionScoreComputed;
     }
 
-    private static List<Leaderboard> sortLeaderboardsByScore(List<Leaderboard> leaderboards) {
-        if (leaderboards == null || leaderboards.isEmpty()) {
-            throw new IllegalArgumentException("No leaderboards found");
+    private Map<String, LeaderboardDto> loadRankingIndex() {
+        if (!unknownAccountIds.containsAll(leaderboardRepository.findAccountIdsWithoutDisplayName())) {
+            updateDisplayNames();
         }
 
-        Comparator<Leaderboard> comparator = Comparator
-                .comparing(Leaderboard::getScore, Comparator.nullsFirst(Comparator.naturalOrder()))
-                .reversed();
-
-        List<Leaderboard> sorted = new ArrayList<>(leaderboards);
-        sorted.sort(comparator);
-        return sorted;
+        return leaderboardRepository.findAll().stream()
+                .collect(Collectors.toMap(Leaderboard::getAccountId, LeaderboardDto::fromLeaderboard));
     }
 
-    private static int calculateScore(Integer currentScore, ZonedDateTime sessionStartTime, ZonedDateTime sessionExecutionTime) {
-        long elapsedSeconds = Duration.between(sessionStartTime, sessionExecutionTime).getSeconds();
-        long totalSeconds = 3600;
-        elapsedSeconds = Math.clamp(elapsedSeconds, 0, totalSeconds);
-        long remainingSeconds = totalSeconds - elapsedSeconds;
+    private int updateDisplayNames() {
+        log.info("Updating leaderboard display names from Keycloak");
+        Map<String, String> displayNameByAccountId = new HashMap<>();
+        leaderboardRepository.findAll().forEach(leaderboard -> displayNameByAccountId.put(leaderboard.getAccountId(), leaderboard.getDisplayName()));
 
-        int sessionScore = (int) ((remainingSeconds * 100) / totalSeconds);
-        int sessionScoreComputed = Math.max(sessionScore, 25); // If score below 25, then just return 25
+        Set<String> unknown = new HashSet<>(displayNameByAccountId.keySet());
+        int updated = 0;
+        for (UserRepresentation user : keycloakService.listAllUsers()) {
+            if (!unknown.remove(user.getId())) {
+                continue;
+            }
+            String fullName = toFullName(user);
+            if (!fullName.equals(displayNameByAccountId.get(user.getId()))) {
+                updated += leaderboardRepository.updateDisplayName(user.getId(), fullName);
+            }
+        }
 
-        return currentScore == null ? sessionScoreComputed : currentScore + sessionScoreComputed;
+        // Remembered so that index reloads do not sync again for accounts Keycloak does not know
+        unknownAccountIds.clear();
+        unknownAccountIds.addAll(unknown);
+        if (!unknown.isEmpty()) {
+            log.warn("{} leaderboards belong to accounts unknown to Keycloak", unknown.size());
+        }
+        log.info("Updated {} leaderboard display names", updated);
+        return updated;
     }
 
-    private static @NonNull Function<UserRepresentation, LeaderboardDto> mapUserToLeaderboard(Map<String, Leaderboard> leaderBoardByAccountId) {
-        return user -> {
-            Leaderboard leaderboard = leaderBoardByAccountId.get(user.getId());
-            if (leaderboard == null) {
-                return null;
-            } else {
-                return LeaderboardDto.fromLeaderboard(String.format("%s %s", user.getFirstName(), user.getLastName()), leaderboard);
-            }
-        };
-    }
-
-    private Comparator<LeaderboardDto> resolveSort(String sortBy, String direction) {
-        Comparator<LeaderboardDto> comparator = switch (sortBy) {
-            case "score" -> Comparator.comparing(
-                    LeaderboardDto::score,
-                    Comparator.nullsLast(Integer::compareTo)
-            );
-            case "fullName" -> Comparator.comparing(LeaderboardDto::fullName);
-            case "completionRate" -> Comparator.comparingDouble(LeaderboardDto::completionRate);
-            case "currentStreak" -> Comparator.comparingInt(LeaderboardDto::currentStreak);
-            case "longestStreak" -> Comparator.comparingInt(LeaderboardDto::longestStreak);
-            case "recentWinner" -> Comparator.comparing(LeaderboardDto::recentWinner);
-            default -> throw new IllegalArgumentException("Invalid sort field: " + sortBy);
-        };
-
-        return "desc".equalsIgnoreCase(direction) ? comparator.reversed() : comparator;
-    }
-
-    private static @NonNull Collector<LeaderboardDto, Object, PagedResponseDto<LeaderboardDto>> collectAndMapToPagedResponse(int page, int size) {
-        return Collectors.collectingAndThen(Collectors.toList(), leaderboardDtos -> {
-            PageImpl<LeaderboardDto> leaderBoardDtoPage = new PageImpl<>(leaderboardDtos, PageRequest.of(page, size), leaderboardDtos.size());
-            return PagedResponseDto.fromPage(leaderBoardDtoPage);
-        });
+    private void onLeaderboardsChanged(List<Leaderboard> leaderboards) {
+        Map<String, LeaderboardDto> leaderboardDtoByAccountId = leaderboards.stream()
+                .collect(Collectors.toMap(Leaderboard::getAccountId, LeaderboardDto::fromLeaderboard));
+
+        rankingIndex.upsertAll(leaderboardDtoByAccountId);
+        leaderboardResponseCache.invalidate();
+        leaderboardDtoByAccountId.forEach(leaderboardPublisher::publish);
+    }
+
+    private static String toFullName(UserRepresentation user) {
+        return String.format("%s %s", user.getFirstName(), user.getLastName());
     }
 }
@@ -0,0 +1,245 @@
+package nl.optifit.backendservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.concurrency.Bulkheads;
+import nl.optifit.backendservice.dto.CalendarEventResultDto;
+import nl.optifit.backendservice.dto.CalendarInviteDto;
+import nl.optifit.backendservice.model.NotificationOutboxEntry;
+import nl.optifit.backendservice.model.OutboxStatus;
+import nl.optifit.backendservice.model.Session;
+import nl.optifit.backendservice.repository.NotificationOutboxRepository;
+import nl.optifit.backendservice.utility.DateUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static nl.optifit.backendservice.concurrency.Downstream.GRAPH;
+
+/**
+ * Transactional outbox for session calendar invites. Entries are written in the transaction that inserts the
+ * sessions and delivered later by the {@link nl.optifit.backendservice.cron.NotificationOutboxDispatcher}, with
+ * exponential backoff between attempts and a DEAD state once the attempts are used up.
+ */
+@Slf4j
+@Service
+public class NotificationOutboxService {
+
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final KeycloakService keycloakService;
+    private final NotificationService notificationService;
+    private final Bulkheads bulkheads;
+
+    private final Duration claimTimeout;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final AtomicLong oldestPendingAgeSeconds = new AtomicLong();
+    private final Timer lagTimer;
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter deadCounter;
+
+    public NotificationOutboxService(NotificationOutboxRepository notificationOutboxRepository,
+                                     KeycloakService keycloakService,
+                                     NotificationService notificationService,
+                                     Bulkheads bulkheads,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${notification.outbox.claim-timeout:PT2M}") Duration claimTimeout,
+                                     @Value("${notification.outbox.max-attempts:8}") int maxAttempts,
+                                     @Value("${notification.outbox.initial-backoff:PT30S}") Duration initialBackoff,
+                                     @Value("${notification.outbox.max-backoff:PT1H}") Duration maxBackoff) {
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.keycloakService = keycloakService;
+        this.notificationService = notificationService;
+        this.bulkheads = bulkheads;
+        this.claimTimeout = claimTimeout;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+
+        Gauge.builder("notification.outbox.oldest.age", oldestPendingAgeSeconds, AtomicLong::get)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("notification.outbox.lag").register(meterRegistry);
+        this.sentCounter = Counter.builder("notification.outbox.dispatched").tag("result", "sent").register(meterRegistry);
+        this.retriedCounter = Counter.builder("notification.outbox.dispatched").tag("result", "retry").register(meterRegistry);
+        this.deadCounter = Counter.builder("notification.outbox.dispatched").tag("result", "dead").register(meterRegistry);
+    }
+
+    /**
+     * Adds an invite for every session. Must run in the transaction that inserts the sessions.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(List<Session> sessions) {
+        Instant now = Instant.now();
+        List<NotificationOutboxEntry> entries = sessions.stream()
+                .map(session -> NotificationOutboxEntry.builder()
+                        .sessionId(session.getId())
+                        .accountId(session.getAccount().getId())
+                        .sessionStart(session.getSessionStart())
+                        .status(OutboxStatus.PENDING)
+                        .attempts(0)
+                        .nextAttemptAt(now)
+                        .createdAt(now)
+                        .build())
+                .toList();
+        notificationOutboxRepository.saveAll(entries);
+    }
+
+    /**
+     * Claims up to {@code limit} due entries by moving their next attempt past the claim timeout. The row locks are
+     * only held for this short transaction; an entry whose dispatcher dies becomes due again once the claim expires.
+     */
+    @Transactional
+    public List<NotificationOutboxEntry> claimDue(int limit) {
+        Instant now = Instant.now();
+        List<NotificationOutboxEntry> due = notificationOutboxRepository.findDueForUpdate(now, PageRequest.of(0, limit));
+        due.forEach(entry -> {
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setNextAttemptAt(now.plus(claimTimeout));
+        });
+        return due;
+    }
+
+    /**
+     * Sends the invites of the entries: recipients are resolved from Keycloak in one batch lookup, after which the
+     * invites are posted to Graph in batches of {@link NotificationService#MAX_BATCH_SIZE}.
+     */
+    public DeliveryReport deliver(List<NotificationOutboxEntry> entries) {
+        Map<UUID, CalendarInviteDto> invites = new HashMap<>();
+        Map<UUID, CalendarEventResultDto> failed = new ConcurrentHashMap<>();
+        try {
+            Map<String, UserRepresentation> usersById = keycloakService.findUsersByIds(entries.stream().map(NotificationOutboxEntry::getAccountId).toList());
+            for (NotificationOutboxEntry entry : entries) {
+                UserRepresentation user = usersById.get(entry.getAccountId());
+                if (user == null) {
+                    failed.put(entry.getId(), CalendarEventResultDto.failed(entry.getSessionId().toString(),
+                            "Could not find user for account '%s'".formatted(entry.getAccountId()), null));
+                } else {
+                    invites.put(entry.getId(), toInvite(entry, user));
+                }
+            }
+        } catch (RuntimeException e) {
+            entries.forEach(entry -> failed.put(entry.getId(), CalendarEventResultDto.failed(entry.getSessionId().toString(), e.getMessage(), null)));
+        }
+
+        List<NotificationOutboxEntry> invited = entries.stream()
+                .filter(entry -> invites.containsKey(entry.getId()))
+                .toList();
+        Queue<NotificationOutboxEntry> sent = new ConcurrentLinkedQueue<>();
+        try (var exec = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < invited.size(); from += NotificationService.MAX_BATCH_SIZE) {
+                List<NotificationOutboxEntry> chunk = invited.subList(from, Math.min(invited.size(), from + NotificationService.MAX_BATCH_SIZE));
+                exec.submit(() -> {
+                    List<CalendarInviteDto> chunkInvites = chunk.stream().map(entry -> invites.get(entry.getId())).toList();
+                    try {
+                        List<CalendarEventResultDto> results = bulkheads.call(GRAPH, () -> notificationService.sendCalendarEventsFrom(chunkInvites));
+                        for (int i = 0; i < chunk.size(); i++) {
+                            if (results.get(i).sent()) {
+                                sent.add(chunk.get(i));
+                            } else {
+                                failed.put(chunk.get(i).getId(), results.get(i));
+                            }
+                        }
+                    } catch (Exception e) {
+                        chunk.forEach(entry -> failed.put(entry.getId(), CalendarEventResultDto.failed(entry.getSessionId().toString(), e.getMessage(), null)));
+                    }
+                });
+            }
+        }
+        return new DeliveryReport(List.copyOf(sent), failed);
+    }
+
+    private static CalendarInviteDto toInvite(NotificationOutboxEntry entry, UserRepresentation userRepresentation) {
+        return new CalendarInviteDto(
+                userRepresentation.getEmail(),
+                "%s %s".formatted(userRepresentation.getFirstName(), userRepresentation.getLastName()),
+                entry.getSessionId().toString(),
+                DateUtil.toGraphDateTime(entry.getSessionStart()),
+                DateUtil.toGraphDateTime(entry.getSessionStart().plusHours(1)));
+    }
+
+    @Transactional
+    public void markSent(Collection<NotificationOutboxEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<UUID> ids = entries.stream().map(NotificationOutboxEntry::getId).toList();
+        notificationOutboxRepository.markSent(ids, now);
+        entries.forEach(entry -> lagTimer.record(Duration.between(entry.getCreatedAt(), now)));
+        sentCounter.increment(entries.size());
+    }
+
+    /**
+     * Schedules the next attempt with exponential backoff, or later if Graph asked to retry after a longer delay, or marks the entry DEAD once it has used all attempts.
+     */
+    @Transactional
+    public void markFailed(NotificationOutboxEntry entry, CalendarEventResultDto result) {
+        notificationOutboxRepository.findById(entry.getId()).ifPresent(failed -> {
+            failed.setLastError(StringUtils.abbreviate(String.valueOf(result.error()), 1000));
+            if (failed.getAttempts() >= maxAttempts) {
+                failed.setStatus(OutboxStatus.DEAD);
+                deadCounter.increment();
+                log.error("Giving up on notification for session '{}' after {} attempts: {}", failed.getSessionId(), failed.getAttempts(), result.error());
+            } else {
+                Duration backoff = backoff(failed.getAttempts());
+                if (result.retryAfter() != null && result.retryAfter().compareTo(backoff) > 0) {
+                    backoff = result.retryAfter();
+                }
+                failed.setNextAttemptAt(Instant.now().plus(backoff));
+                retriedCounter.increment();
+                log.warn("Notification for session '{}' failed on attempt {}, retrying in {}: {}",
+                        failed.getSessionId(), failed.getAttempts(), backoff, result.error());
+            }
+        });
+    }
+
+    /**
+     * Removes the entries of sessions that started before the cutoff, whatever their state. Entries are not tied to
+     * their session by a foreign key, as the sessions table is partitioned.
+     */
+    @Transactional
+    public int removeForSessionsBefore(ZonedDateTime cutoff) {
+        return notificationOutboxRepository.deleteForSessionsBefore(cutoff);
+    }
+
+    public void refreshLag() {
+        Instant now = Instant.now();
+        long ageSeconds = notificationOutboxRepository.findOldestPendingCreatedAt()
+                .map(oldest -> Math.max(0, Duration.between(oldest, now).toSeconds()))
+                .orElse(0L);
+        oldestPendingAgeSeconds.set(ageSeconds);
+    }
+
+    public record DeliveryReport(List<NotificationOutboxEntry> sent, Map<UUID, CalendarEventResultDto> failed) {
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+}
@@ -1,5 +1,7 @@
 package nl.optifit.backendservice.service;
 
+import com.microsoft.graph.core.content.BatchRequestContent;
+import com.microsoft.graph.core.content.BatchResponseContent;
 import com.microsoft.graph.models.Attendee;
 import com.microsoft.graph.models.BodyType;
 import com.microsoft.graph.models.DateTimeTimeZone;
@@ -9,19 +11,32 @@ import com.microsoft.graph.models.FreeBusyStatus;
 import com.microsoft.graph.models.ItemBody;
 import com.microsoft.graph.models.Recipient;
 import com.microsoft.graph.serviceclient.GraphServiceClient;
+import com.microsoft.kiota.ApiException;
+import com.microsoft.kiota.RequestInformation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.dto.CalendarEventResultDto;
+import nl.optifit.backendservice.dto.CalendarInviteDto;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class NotificationService {
 
+    public static final int MAX_BATCH_SIZE = 20;
+    private static final String RETRY_AFTER = "Retry-After";
+
     @Value("${notification.user-id}")
     private String notificationUserId;
     @Value("${notification.user-email}")
@@ -33,16 +48,93 @@ public class NotificationService {
 
     private final GraphServiceClient graphServiceClient;
 
-    public void sendCalendarEventFrom(String email, String fullName, String sessionId, DateTimeTimeZone start, DateTimeTimeZone end) {
-        Event event = createEventFrom(email, fullName, sessionId, start, end);
+    /**
+     * Posts the invites as one Graph {@code $batch} request of at most {@link #MAX_BATCH_SIZE} events. Failures are
+     * reported per invite, together with the Retry-After hint of throttled events; results are in invite order.
+     */
+    public List<CalendarEventResultDto> sendCalendarEventsFrom(List<CalendarInviteDto> invites) {
+        if (invites.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A Graph batch holds at most %d requests, got %d".formatted(MAX_BATCH_SIZE, invites.size()));
+        }
+        if (invites.isEmpty()) {
+            return List.of();
+        }
+
+        BatchRequestContent batchRequestContent = new BatchRequestContent(graphServiceClient);
+        List<String> stepIds = new ArrayList<>(invites.size());
+        for (CalendarInviteDto invite : invites) {
+            Event event = createEventFrom(invite.email(), invite.fullName(), invite.sessionId(), invite.start(), invite.end());
+            RequestInformation requestInformation = graphServiceClient.users()
+                    .byUserId(notificationUserId)
+                    .calendar()
+                    .events()
+                    .toPostRequestInformation(event);
+            stepIds.add(batchRequestContent.addBatchRequestStep(requestInformation));
+        }
+
+        try {
+            BatchResponseContent batchResponseContent = graphServiceClient.getBatchRequestBuilder().post(batchRequestContent, null);
+            Map<String, Integer> statusCodes = batchResponseContent.getResponsesStatusCode();
+
+            List<CalendarEventResultDto> results = new ArrayList<>(invites.size());
+            for (int i = 0; i < invites.size(); i++) {
+                String sessionId = invites.get(i).sessionId();
+                String stepId = stepIds.get(i);
+                Integer statusCode = statusCodes.get(stepId);
+                if (statusCode != null && statusCode >= 200 && statusCode < 300) {
+                    results.add(CalendarEventResultDto.sent(sessionId));
+                } else {
+                    Duration retryAfter = retryAfterOf(batchResponseContent.getResponseById(stepId));
+                    results.add(CalendarEventResultDto.failed(sessionId, "Graph returned status %s".formatted(statusCode), retryAfter));
+                }
+            }
+            log.info("Posted {} of {} events in one batch", results.stream().filter(CalendarEventResultDto::sent).count(), invites.size());
+            return results;
+        } catch (ApiException e) {
+            Duration retryAfter = e.getResponseHeaders().entrySet().stream()
+                    .filter(header -> RETRY_AFTER.equalsIgnoreCase(header.getKey()))
+                    .flatMap(header -> header.getValue().stream())
+                    .findFirst()
+                    .map(NotificationService::parseRetryAfter)
+                    .orElse(null);
+            return failAll(invites, "Graph batch failed with status %d".formatted(e.getResponseStatusCode()), retryAfter);
+        } catch (IOException e) {
+            return failAll(invites, "Graph batch failed: %s".formatted(e.getMessage()), null);
+        }
+    }
+
+    private static List<CalendarEventResultDto> failAll(List<CalendarInviteDto> invites, String error, Duration retryAfter) {
+        log.warn("{} for {} events", error, invites.size());
+        return invites.stream()
+                .map(invite -> CalendarEventResultDto.failed(invite.sessionId(), error, retryAfter))
+                .toList();
+    }
 
-        Event postedEvent = graphServiceClient.users()
-                .byUserId(notificationUserId)
-                .calendar()
-                .events()
-                .post(event);
+    /**
+     * Reads the Retry-After hint of a failed step and releases the step's response. OkHttp refuses to close a response
+     * without a body, so the body is closed instead; a step without one holds nothing to release.
+     */
+    private static Duration retryAfterOf(Response response) {
+        if (response == null) {
+            return null;
+        }
+        try (ResponseBody body = response.body()) {
+            return parseRetryAfter(response.header(RETRY_AFTER));
+        }
+    }
 
-        log.info("Posted event: {}", postedEvent.getId());
+    /**
+     * Graph sends Retry-After as a number of seconds.
+     */
+    private static Duration parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     @NotNull
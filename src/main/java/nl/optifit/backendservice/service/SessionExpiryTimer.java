@@ -0,0 +1,56 @@
+package nl.optifit.backendservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.repository.SessionRepository;
+import nl.optifit.backendservice.utility.HashedTimingWheel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * In-memory expiry timers for NEW sessions. The persisted expires_at column is the source of truth: the timers are
+ * rebuilt from it on startup, and firing a timer for a session that was completed in the meantime is a no-op.
+ */
+@Slf4j
+@Component
+public class SessionExpiryTimer {
+
+    private final SessionRepository sessionRepository;
+    private final HashedTimingWheel<UUID> timingWheel;
+
+    public SessionExpiryTimer(SessionRepository sessionRepository,
+                              @Value("${sessions.expiry.tick:1000}") long tickMillis,
+                              @Value("${sessions.expiry.wheel-size:512}") int wheelSize) {
+        this.sessionRepository = sessionRepository;
+        this.timingWheel = new HashedTimingWheel<>(Duration.ofMillis(tickMillis), wheelSize, Instant.now());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<SessionRepository.PendingExpiry> pendingExpiries = sessionRepository.findPendingExpiries();
+        synchronized (timingWheel) {
+            timingWheel.clear();
+            pendingExpiries.forEach(pending -> timingWheel.schedule(pending.getId(), pending.getExpiresAt().toInstant()));
+        }
+        log.info("Scheduled {} session expiry timers", pendingExpiries.size());
+    }
+
+    public void schedule(UUID sessionId, ZonedDateTime expiresAt) {
+        synchronized (timingWheel) {
+            timingWheel.schedule(sessionId, expiresAt.toInstant());
+        }
+    }
+
+    public List<UUID> advance(Instant now) {
+        synchronized (timingWheel) {
+            return timingWheel.advance(now);
+        }
+    }
+}
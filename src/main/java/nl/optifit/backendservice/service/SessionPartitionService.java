@@ -0,0 +1,137 @@
+package nl.optifit.backendservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.repository.SessionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Maintains the daily partitions of the sessions table. Retention works on whole partitions: an expired partition is
+ * moved into sessions_archive, which is a metadata-only operation, and archived partitions are eventually dropped.
+ * When partitioning is disabled, retention falls back to deleting rows.
+ */
+@Slf4j
+@Service
+public class SessionPartitionService {
+
+    private static final String SESSIONS = "sessions";
+    private static final String SESSIONS_DEFAULT = "sessions_default";
+    private static final String SESSIONS_ARCHIVE = "sessions_archive";
+    private static final String PARTITION_PREFIX = "sessions_p";
+    private static final DateTimeFormatter PARTITION_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final SessionRepository sessionRepository;
+    private final boolean enabled;
+    private final int daysAhead;
+    private final Period archiveRetention;
+
+    public SessionPartitionService(SessionRepository sessionRepository,
+                                   @Value("${sessions.partitioning.enabled:false}") boolean enabled,
+                                   @Value("${sessions.partitioning.days-ahead:7}") int daysAhead,
+                                   @Value("${sessions.partitioning.archive-retention:P1Y}") Period archiveRetention) {
+        this.sessionRepository = sessionRepository;
+        this.enabled = enabled;
+        this.daysAhead = daysAhead;
+        this.archiveRetention = archiveRetention;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Makes sure a partition exists for today and the configured number of days ahead.
+     *
+     * @return the number of partitions created
+     */
+    @Transactional
+    public int createUpcomingPartitions() {
+        Set<String> existing = new HashSet<>(sessionRepository.findPartitionNames(SESSIONS));
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+        int created = 0;
+        for (LocalDate day = today; !day.isAfter(today.plusDays(daysAhead)); day = day.plusDays(1)) {
+            String partition = partitionName(day);
+            if (!existing.contains(partition)) {
+                sessionRepository.createPartition(SESSIONS, SESSIONS_DEFAULT, partition, startOf(day), startOf(day.plusDays(1)));
+                created++;
+            }
+        }
+        if (created > 0) {
+            log.info("Created {} session partitions", created);
+        }
+        return created;
+    }
+
+    /**
+     * Moves every partition that only holds sessions before the cutoff into the archive.
+     *
+     * @return the number of partitions archived
+     */
+    @Transactional
+    public int archivePartitionsBefore(Instant cutoff) {
+        int archived = 0;
+        for (String partition : sessionRepository.findPartitionNames(SESSIONS)) {
+            Optional<LocalDate> day = partitionDay(partition);
+            if (day.isPresent() && !startOf(day.get().plusDays(1)).isAfter(cutoff)) {
+                sessionRepository.movePartition(partition, SESSIONS, SESSIONS_ARCHIVE, startOf(day.get()), startOf(day.get().plusDays(1)));
+                archived++;
+            }
+        }
+        log.info("Archived {} session partitions before {}", archived, cutoff);
+        return archived;
+    }
+
+    /**
+     * Drops archived partitions that are older than the archive retention.
+     *
+     * @return the number of partitions dropped
+     */
+    @Transactional
+    public int dropExpiredArchivePartitions() {
+        LocalDate oldestKept = LocalDate.now(ZoneOffset.UTC).minus(archiveRetention);
+
+        int dropped = 0;
+        for (String partition : sessionRepository.findPartitionNames(SESSIONS_ARCHIVE)) {
+            Optional<LocalDate> day = partitionDay(partition);
+            if (day.isPresent() && day.get().isBefore(oldestKept)) {
+                sessionRepository.dropPartition(partition);
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            log.info("Dropped {} archived session partitions before {}", dropped, oldestKept);
+        }
+        return dropped;
+    }
+
+    private static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + day.format(PARTITION_DATE);
+    }
+
+    private static Optional<LocalDate> partitionDay(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_DATE));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
@@ -1,29 +1,28 @@
 package nl.optifit.backendservice.service;
 
-import com.microsoft.graph.models.DateTimeTimeZone;
+import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.ws.rs.NotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.dto.KeysetPageDto;
 import nl.optifit.backendservice.dto.PagedResponseDto;
+import nl.optifit.backendservice.dto.SessionCreationResultDto;
 import nl.optifit.backendservice.dto.SessionDto;
-import nl.optifit.backendservice.model.Account;
 import nl.optifit.backendservice.model.ExerciseType;
 import nl.optifit.backendservice.model.ExerciseVideo;
 import nl.optifit.backendservice.model.Mobility;
 import nl.optifit.backendservice.model.Session;
 import nl.optifit.backendservice.model.SessionStatus;
-import nl.optifit.backendservice.repository.ExerciseVideoRepository;
 import nl.optifit.backendservice.repository.MobilityRepository;
 import nl.optifit.backendservice.repository.SessionRepository;
-import nl.optifit.backendservice.utility.DateUtil;
+import nl.optifit.backendservice.utility.SessionCursor;
 import org.apache.commons.lang3.StringUtils;
-import org.keycloak.admin.client.resource.UserResource;
-import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
@@ -37,10 +36,14 @@ import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE;
+import static nl.optifit.backendservice.utility.TransactionUtil.afterCommit;
 
 @RequiredArgsConstructor
 @Service
@@ -48,20 +51,68 @@ import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE;
 public class SessionService {
 
     public static final String TIMEZONE_EUROPE_AMSTERDAM = "Europe/Amsterdam";
+    private static final Duration SESSION_DURATION = Duration.ofHours(1);
 
     private final LeaderboardService leaderboardService;
     private final SessionRepository sessionRepository;
-    private final ExerciseVideoRepository exerciseVideoRepository;
+    private final ExerciseVideoCatalog exerciseVideoCatalog;
     private final MobilityRepository mobilityRepository;
-    private final KeycloakService keycloakService;
-    private final NotificationService notificationService;
+    private final NotificationOutboxService notificationOutboxService;
+    private final SessionExpiryTimer sessionExpiryTimer;
+    private final SessionPartitionService sessionPartitionService;
+    private final IdempotencyService idempotencyService;
 
     public PagedResponseDto<SessionDto> findAllForAccount(String accountId, String sessionStartDateString,
                                                           SessionStatus sessionStatus, int page, int size, String direction, String sortBy) {
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.fromString(direction), sortBy));
 
-        Page<SessionDto> sessionDtoPage = sessionRepository.findAll((root, query, cb) -> {
+        Page<SessionDto> sessionDtoPage = sessionRepository.findAll(filterFor(accountId, sessionStartDateString, sessionStatus), pageable)
+                .map(SessionDto::fromSession);
+
+        return PagedResponseDto.fromPage(sessionDtoPage);
+    }
+
+    /**
+     * Lists the sessions of the account newest first by seeking past the cursor instead of skipping an offset, so
+     * every page costs the same regardless of its depth. One extra row is read to tell whether a next page exists.
+     */
+    public KeysetPageDto<SessionDto> findAllForAccount(String accountId, String sessionStartDateString,
+                                                       SessionStatus sessionStatus, String cursor, int size, boolean includeTotal) {
+        Specification<Session> filter = filterFor(accountId, sessionStartDateString, sessionStatus);
+
+        Specification<Session> seek = filter;
+        if (StringUtils.isNotBlank(cursor)) {
+            SessionCursor after = SessionCursor.decode(cursor);
+            ZonedDateTime afterStart = after.sessionStart().atZone(ZoneId.of(TIMEZONE_EUROPE_AMSTERDAM));
+            seek = seek.and((root, query, cb) -> cb.or(
+                    cb.lessThan(root.<ZonedDateTime>get("sessionStart"), afterStart),
+                    cb.and(cb.equal(root.get("sessionStart"), afterStart), cb.lessThan(root.<UUID>get("id"), after.id()))));
+        }
+        seek = seek.and((root, query, cb) -> {
+            root.fetch("exerciseVideo", JoinType.LEFT);
+            return null;
+        });
+
+        List<Session> sessions = sessionRepository.findBy(seek, q -> q
+                .sortBy(Sort.by(Sort.Direction.DESC, "sessionStart", "id"))
+                .limit(size + 1)
+                .all());
+
+        boolean hasNext = sessions.size() > size;
+        List<Session> pageContent = hasNext ? sessions.subList(0, size) : sessions;
+        String nextCursor = null;
+        if (hasNext) {
+            Session last = pageContent.getLast();
+            nextCursor = new SessionCursor(last.getSessionStart().toInstant(), last.getId()).encode();
+        }
+        Long totalElements = includeTotal ? sessionRepository.count(filter) : null;
+
+        return new KeysetPageDto<>(pageContent.stream().map(SessionDto::fromSession).toList(), pageContent.size(), nextCursor, totalElements);
+    }
+
+    private static Specification<Session> filterFor(String accountId, String sessionStartDateString, SessionStatus sessionStatus) {
+        return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
             predicates.add(cb.equal(root.get("account").get("id"), accountId));
 
@@ -77,111 +128,127 @@ public class SessionService {
             }
 
             return cb.and(predicates.toArray(new Predicate[0]));
-        }, pageable).map(SessionDto::fromSession);
-
-        return PagedResponseDto.fromPage(sessionDtoPage);
+        };
     }
 
-    public void createSessionForAccount(Account account, ExerciseType exerciseType) {
-        log.info("Creating session for account '{}'", account.getId());
-
-        Optional<Session> newSessionOptional = createNewSession(account, exerciseType);
-
-        if (newSessionOptional.isEmpty()) {
-            return;
-        }
-
-        Session newSession = newSessionOptional.get();
-
-        Optional<UserResource> userById = keycloakService.findUserById(account.getId());
-        userById.ifPresentOrElse(userResource -> {
-            UserRepresentation userRepresentation = userResource.toRepresentation();
-            String email = userRepresentation.getEmail();
-            String fullName = "%s %s".formatted(userRepresentation.getFirstName(), userRepresentation.getLastName());
-            DateTimeTimeZone start = DateUtil.toGraphDateTime(newSession.getSessionStart());
-            DateTimeTimeZone end = DateUtil.toGraphDateTime(newSession.getSessionStart().plusHours(1));
+    /**
+     * Creates the sessions of one slot for the accounts in the timezone whose id hashes into the given shard. The
+     * latest mobility of every account is loaded in one query, videos are resolved from the resident catalog, and the
+     * sessions are inserted in one batch together with their calendar invites in the notification outbox, so the
+     * slot only waits for the database.
+     */
+    @Transactional
+    public SessionCreationResultDto createSessions(String timezone, ExerciseType exerciseType, int shard, int shards) {
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of(TIMEZONE_EUROPE_AMSTERDAM)).truncatedTo(ChronoUnit.MINUTES);
 
-            log.debug("Sending event for account '{}' with start '{}' and end '{}'", account.getId(), start.getDateTime(), end.getDateTime());
-            notificationService.sendCalendarEventFrom(email, fullName, newSession.getId().toString(), start, end);
-        }, () -> log.warn("Could not find user for account '{}'", account.getId()));
+        long loadStart = System.nanoTime();
+        Map<String, Mobility> latestMeasurementByAccountId = mobilityRepository.findLatestForAccountsInTimezoneShard(timezone, shard, shards).stream()
+                .collect(Collectors.toMap(mobility -> mobility.getAccount().getId(), Function.identity(), (first, second) -> first));
+
+        List<Session> newSessions = latestMeasurementByAccountId.values().stream()
+                .map(latestMeasurement -> createNewSession(latestMeasurement, exerciseType, now))
+                .toList();
+        long loadMs = (System.nanoTime() - loadStart) / 1_000_000;
+
+        long persistStart = System.nanoTime();
+        List<Session> savedSessions = sessionRepository.saveAll(newSessions);
+        notificationOutboxService.enqueue(savedSessions);
+        // Armed once committed, so a rolled back slot leaves no timers behind
+        afterCommit(() -> savedSessions.forEach(session -> sessionExpiryTimer.schedule(session.getId(), session.getExpiresAt())));
+        long persistMs = (System.nanoTime() - persistStart) / 1_000_000;
+
+        SessionCreationResultDto result = new SessionCreationResultDto(latestMeasurementByAccountId.size(), savedSessions.size(), loadMs, persistMs);
+        log.info("Created {} '{}' sessions for timezone '{}' shard {}/{} (load {} ms, persist {} ms)",
+                result.sessions(), exerciseType, timezone, shard + 1, shards, result.loadMs(), result.persistMs());
+        return result;
     }
 
+    /**
+     * Completes the session if it belongs to the account and is still NEW. The status check is part of the update, so
+     * when the user and the expiry race, or a request is retried, only the first one is applied to the leaderboard
+     * and the others are no-ops. A session of another account is reported as not found. With an idempotency key, a
+     * retry replays the outcome of the original request.
+     *
+     * @return whether this request finished the session
+     */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void updateSessionForAccount(String lastSessionId) {
-        log.debug("Updating session '{}'", lastSessionId);
-
-        Session lastSession = sessionRepository.findById(UUID.fromString(lastSessionId))
-                .orElseThrow(() -> new NotFoundException(String.format("Session '%s' not found", lastSessionId)));
-
-        if (!lastSession.getSessionStatus().equals(SessionStatus.NEW)) {
-            log.warn("Session is already finished");
-            throw new IllegalStateException("Session is already finished");
+    public boolean updateSessionForAccount(String accountId, String sessionId, String idempotencyKey) {
+        log.debug("Updating session '{}' for account '{}'", sessionId, accountId);
+        boolean idempotent = StringUtils.isNotBlank(idempotencyKey);
+        if (idempotent) {
+            Optional<Boolean> replayed = idempotencyService.claim(accountId, idempotencyKey, "PUT session " + sessionId);
+            if (replayed.isPresent()) {
+                return replayed.get();
+            }
         }
 
-        updateSession(lastSession);
-        leaderboardService.updateLeaderboard(lastSession);
-    }
-
-    public Optional<Session> createNewSession(Account account, ExerciseType exerciseType) {
         ZonedDateTime now = ZonedDateTime.now(ZoneId.of(TIMEZONE_EUROPE_AMSTERDAM)).truncatedTo(ChronoUnit.MINUTES);
-
-        Optional<Mobility> latestMeasurementOptional = mobilityRepository.findTopByAccountIdOrderByMeasuredOnDesc(account.getId());
-
-        if (latestMeasurementOptional.isEmpty()) {
-            log.debug("Could not find latest measurement for account '{}'. Skipping session creation.", account.getId());
-            return Optional.empty();
+        UUID id = UUID.fromString(sessionId);
+        Optional<Session> finished = sessionRepository.finishIfNew(id, accountId, now.minus(SESSION_DURATION), now);
+        if (finished.isPresent()) {
+            if (finished.get().getSessionStatus() == SessionStatus.OVERDUE) {
+                log.warn("An hour has already passed after start of session '{}'", sessionId);
+            }
+            leaderboardService.updateLeaderboard(finished.get());
+        } else if (!sessionRepository.existsByIdAndAccountId(id, accountId)) {
+            throw new NotFoundException(String.format("Could not find session '%s' for account '%s'", sessionId, accountId));
+        } else {
+            log.debug("Session '{}' is already finished", sessionId);
         }
 
-        Mobility latestMeasurement = latestMeasurementOptional.get();
+        if (idempotent) {
+            idempotencyService.recordOutcome(accountId, idempotencyKey, finished.isPresent());
+        }
+        return finished.isPresent();
+    }
 
+    private Session createNewSession(Mobility latestMeasurement, ExerciseType exerciseType, ZonedDateTime now) {
         Integer score = switch (exerciseType) {
             case HIP -> Optional.ofNullable(latestMeasurement.getHip()).orElse(2);
             case SHOULDER -> Optional.ofNullable(latestMeasurement.getShoulder()).orElse(2);
             case BACK -> Optional.ofNullable(latestMeasurement.getBack()).orElse(2);
         };
-        ExerciseVideo exerciseVideo = exerciseVideoRepository.findByExerciseTypeAndScoreEquals(exerciseType, score);
+        ExerciseVideo exerciseVideo = exerciseVideoCatalog.find(exerciseType, score).orElse(null);
 
-        Session session = Session.builder()
-                .account(account)
+        return Session.builder()
+                .account(latestMeasurement.getAccount())
                 .sessionStart(now)
+                .expiresAt(now.plus(SESSION_DURATION))
                 .exerciseType(exerciseType)
                 .sessionStatus(SessionStatus.NEW)
                 .exerciseVideo(exerciseVideo)
                 .build();
-
-        return Optional.of(sessionRepository.save(session));
-    }
-
-    public void updateSession(Session latestSession) {
-        ZonedDateTime now = ZonedDateTime.now(ZoneId.of(TIMEZONE_EUROPE_AMSTERDAM)).truncatedTo(ChronoUnit.MINUTES);
-        ZonedDateTime lastSessionStart = latestSession.getSessionStart().truncatedTo(ChronoUnit.MINUTES);
-
-        if (latestSession.getSessionStatus().equals(SessionStatus.NEW)) {
-            long differenceBetweenSessionStartAndNow = Duration.between(lastSessionStart, now).toMinutes();
-
-            if (differenceBetweenSessionStartAndNow >= 60) {
-                log.warn("An hour has already passed after session start");
-                latestSession.setSessionStatus(SessionStatus.OVERDUE);
-                latestSession.setSessionExecutionTime(null);
-            } else {
-                latestSession.setSessionStatus(SessionStatus.COMPLETED);
-                latestSession.setSessionExecutionTime(now);
-            }
-        }
-
-        sessionRepository.save(latestSession);
     }
 
-    public List<Session> getByStatus(SessionStatus sessionStatus) {
-        return sessionRepository.findAllBySessionStatusEquals(sessionStatus);
+    /**
+     * Marks every NEW session in the timezone that has been open for an hour as OVERDUE in one statement and applies
+     * the results to the leaderboards in one batch.
+     *
+     * @return the number of sessions that became overdue
+     */
+    @Transactional
+    public int expireOverdueSessions(String timezone) {
+        ZonedDateTime cutoff = ZonedDateTime.now(ZoneId.of(TIMEZONE_EUROPE_AMSTERDAM)).truncatedTo(ChronoUnit.MINUTES).minusHours(1);
+        long start = System.nanoTime();
+
+        List<Session> overdueSessions = sessionRepository.markOverdueForTimezone(timezone, cutoff);
+        int leaderboards = leaderboardService.updateLeaderboards(overdueSessions);
+
+        log.info("Marked {} sessions overdue for timezone '{}' and updated {} leaderboards in {} ms",
+                overdueSessions.size(), timezone, leaderboards, (System.nanoTime() - start) / 1_000_000);
+        return overdueSessions.size();
     }
 
-    public boolean sessionBelongsToAccount(String sessionId, String accountId) {
-        log.debug("Checking if session '{}' belongs to account '{}'", sessionId, accountId);
-        Session session = sessionRepository.findById(UUID.fromString(sessionId))
-                .orElseThrow(() -> new NotFoundException(String.format("Could not find session '%s'", sessionId)));
-
-        return session.getAccount().getId().equals(accountId);
+    /**
+     * Marks the given sessions OVERDUE if they are still NEW and have expired, and applies them to the leaderboards.
+     *
+     * @return the number of sessions that became overdue
+     */
+    @Transactional
+    public int expireSessions(List<UUID> sessionIds) {
+        List<Session> overdueSessions = sessionRepository.markOverdueByIds(sessionIds, ZonedDateTime.now(ZoneId.of(TIMEZONE_EUROPE_AMSTERDAM)));
+        leaderboardService.updateLeaderboards(overdueSessions);
+        return overdueSessions.size();
     }
 
     public SessionDto findSessionForAccount(String accountId, String sessionId) {
@@ -190,8 +257,22 @@ public class SessionService {
                 .orElseThrow(() -> new NotFoundException(String.format("Could not find session '%s' for account '%s'", sessionId, accountId)));
     }
 
+    /**
+     * Moves sessions older than a day out of the live table: whole partitions are archived when the table is
+     * partitioned, otherwise the rows are deleted.
+     */
+    @Transactional
     public ResponseEntity<String> removeStaleSessions() {
         ZonedDateTime yesterday = ZonedDateTime.now(ZoneId.of(TIMEZONE_EUROPE_AMSTERDAM)).minusDays(1);
+        notificationOutboxService.removeForSessionsBefore(yesterday);
+        idempotencyService.removeCreatedBefore(yesterday.toInstant());
+
+        if (sessionPartitionService.isEnabled()) {
+            log.debug("Archiving session partitions before {}", yesterday);
+            int archived = sessionPartitionService.archivePartitionsBefore(yesterday.toInstant());
+            return ResponseEntity.ok("Archived %d session partitions".formatted(archived));
+        }
+
         log.debug("Removing sessions older than {}", yesterday);
         sessionRepository.deleteSessionsOlderThan(yesterday);
         return ResponseEntity.noContent().build();
@@ -200,8 +281,16 @@ public class SessionService {
     public ResponseEntity<String> completeTodaySessions() {
         ZonedDateTime startToday = ZonedDateTime.now(ZoneId.of(TIMEZONE_EUROPE_AMSTERDAM)).withHour(0).withMinute(0).withSecond(0);
         ZonedDateTime endToday = ZonedDateTime.now(ZoneId.of(TIMEZONE_EUROPE_AMSTERDAM)).withHour(23).withMinute(59).withSecond(59);
-        sessionRepository.findAllBySessionStartBetween(startToday, endToday).forEach(leaderboardService::updateLeaderboard);
-        return ResponseEntity.ok().build();
+        long start = System.nanoTime();
+
+        List<Session> sessions = sessionRepository.findAllBySessionStartBetween(startToday, endToday);
+        int accounts = leaderboardService.updateLeaderboards(sessions);
+
+        long durationMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        String result = "Recomputed %d leaderboards from %d sessions in %d ms (%.1f accounts/s)"
+                .formatted(accounts, sessions.size(), durationMs, accounts * 1000.0 / durationMs);
+        log.info(result);
+        return ResponseEntity.ok(result);
     }
 
     public void deleteAll() {
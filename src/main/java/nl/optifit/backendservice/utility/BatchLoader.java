@@ -0,0 +1,182 @@
+package nl.optifit.backendservice.utility;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces lookups by key into batches, in the spirit of DataLoader: keys requested within the batch window are
+ * fetched with one call of the batch function, keys already being fetched are not requested again, and results are
+ * memoized for a short time so the lookups of one request or job reach the downstream once per key.
+ * <p>
+ * The batch function returns an entry for every key it resolved, empty for keys that do not exist. It may return
+ * more keys than requested, which primes the memo. Requested keys it leaves out have failed and are retried by the
+ * next lookup; an exception fails the whole batch.
+ */
+@Slf4j
+public class BatchLoader<K, V> implements AutoCloseable {
+
+    private final Function<Set<K>, Map<K, Optional<V>>> batchFunction;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final long memoTtlNanos;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService fetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<K, Memo<V>> memo = new ConcurrentHashMap<>();
+    private Map<K, CompletableFuture<Optional<V>>> pending = new LinkedHashMap<>();
+
+    public BatchLoader(String name, Duration window, int maxBatchSize, Duration memoTtl, Function<Set<K>, Map<K, Optional<V>>> batchFunction) {
+        this.batchFunction = batchFunction;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.memoTtlNanos = memoTtl.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name(name + "-loader").daemon().factory());
+    }
+
+    public Optional<V> load(K key) {
+        return join(loadAsync(key));
+    }
+
+    /**
+     * Loads all keys in as few batches as possible. Keys that could not be loaded are left out rather than failing
+     * the others, so callers can tell a key that does not exist, which maps to empty, from one that failed.
+     *
+     * @return the result of every key that was loaded
+     */
+    public Map<K, Optional<V>> loadAll(Collection<K> keys) {
+        Map<K, CompletableFuture<Optional<V>>> futures = new LinkedHashMap<>();
+        keys.forEach(key -> futures.computeIfAbsent(key, this::loadAsync));
+
+        Map<K, Optional<V>> results = new LinkedHashMap<>();
+        List<K> failed = new ArrayList<>();
+        RuntimeException cause = null;
+        for (Map.Entry<K, CompletableFuture<Optional<V>>> entry : futures.entrySet()) {
+            try {
+                results.put(entry.getKey(), join(entry.getValue()));
+            } catch (RuntimeException e) {
+                failed.add(entry.getKey());
+                cause = e;
+            }
+        }
+        if (cause != null) {
+            log.warn("Could not load {} of {} keys {}: {}", failed.size(), futures.size(), failed, cause.getMessage());
+        }
+        return results;
+    }
+
+    public void clear(K key) {
+        memo.remove(key);
+    }
+
+    public void clearAll() {
+        memo.clear();
+    }
+
+    private CompletableFuture<Optional<V>> loadAsync(K key) {
+        Memo<V> memoized = memo.get(key);
+        if (memoized != null && !memoized.isExpired(System.nanoTime())) {
+            return memoized.value();
+        }
+
+        synchronized (this) {
+            memoized = memo.get(key);
+            if (memoized != null && !memoized.isExpired(System.nanoTime())) {
+                return memoized.value();
+            }
+
+            CompletableFuture<Optional<V>> future = new CompletableFuture<>();
+            memo.put(key, new Memo<>(future, System.nanoTime() + memoTtlNanos));
+            pending.put(key, future);
+            if (pending.size() >= maxBatchSize) {
+                dispatch();
+            } else if (pending.size() == 1) {
+                scheduler.schedule(this::dispatch, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            return future;
+        }
+    }
+
+    private synchronized void dispatch() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<K, CompletableFuture<Optional<V>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        fetchExecutor.submit(() -> fetch(batch));
+    }
+
+    private void fetch(Map<K, CompletableFuture<Optional<V>>> batch) {
+        long now = System.nanoTime();
+        memo.entrySet().removeIf(entry -> entry.getValue().isExpired(now) && entry.getValue().value().isDone());
+
+        Map<K, Optional<V>> results;
+        try {
+            results = batchFunction.apply(Set.copyOf(batch.keySet()));
+        } catch (RuntimeException e) {
+            batch.forEach((key, future) -> fail(key, future, e));
+            return;
+        }
+
+        // Primes the memo before completing the requested keys, so their callers find the extra keys right away
+        long expiresAt = System.nanoTime() + memoTtlNanos;
+        results.forEach((key, result) -> {
+            if (!batch.containsKey(key)) {
+                memo.compute(key, (k, memoized) -> memoized == null || memoized.value().isDone()
+                        ? new Memo<>(CompletableFuture.completedFuture(result), expiresAt)
+                        : memoized);
+            }
+        });
+        batch.forEach((key, future) -> {
+            Optional<V> result = results.get(key);
+            if (result == null) {
+                fail(key, future, new IllegalStateException("Could not load '%s'".formatted(key)));
+            } else {
+                future.complete(result);
+            }
+        });
+    }
+
+    private void fail(K key, CompletableFuture<Optional<V>> future, RuntimeException cause) {
+        memo.computeIfPresent(key, (k, memoized) -> memoized.value() == future ? null : memoized);
+        future.completeExceptionally(cause);
+    }
+
+    private static <V> Optional<V> join(CompletableFuture<Optional<V>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        fetchExecutor.shutdownNow();
+    }
+
+    private record Memo<V>(CompletableFuture<Optional<V>> value, long expiresAt) {
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+}
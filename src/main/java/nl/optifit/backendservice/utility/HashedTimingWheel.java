@@ -0,0 +1,81 @@
+package nl.optifit.backendservice.utility;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timing wheel: timers are hashed into a fixed ring of buckets by their due tick, so scheduling is O(1) and
+ * advancing only scans the buckets of the ticks that passed. Timers never fire before their due time. Not
+ * thread-safe; callers are expected to guard access.
+ */
+public class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+    private final List<List<Timer<T>>> buckets;
+    private long nextTick;
+    private int size;
+
+    public HashedTimingWheel(Duration tick, int wheelSize, Instant start) {
+        this.tickMillis = tick.toMillis();
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.nextTick = Math.floorDiv(start.toEpochMilli(), tickMillis);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        buckets.forEach(List::clear);
+        size = 0;
+    }
+
+    /**
+     * Schedules the value to fire at the given time. Values due in the past fire on the next advance.
+     */
+    public void schedule(T value, Instant due) {
+        long dueTick = Math.max(Math.ceilDiv(due.toEpochMilli(), tickMillis), nextTick);
+        buckets.get(bucketOf(dueTick)).add(new Timer<>(value, dueTick));
+        size++;
+    }
+
+    /**
+     * Advances the wheel to the given time and returns all values that are due.
+     */
+    public List<T> advance(Instant now) {
+        long currentTick = Math.floorDiv(now.toEpochMilli(), tickMillis);
+        if (currentTick < nextTick) {
+            return List.of();
+        }
+
+        List<T> due = new ArrayList<>();
+        // Once a full rotation has passed every bucket has been visited, so more iterations add nothing
+        long ticks = Math.min(currentTick - nextTick + 1, buckets.size());
+        for (long tick = nextTick; tick < nextTick + ticks; tick++) {
+            Iterator<Timer<T>> timers = buckets.get(bucketOf(tick)).iterator();
+            while (timers.hasNext()) {
+                Timer<T> timer = timers.next();
+                if (timer.dueTick() <= currentTick) {
+                    due.add(timer.value());
+                    timers.remove();
+                    size--;
+                }
+            }
+        }
+        nextTick = currentTick + 1;
+        return due;
+    }
+
+    private int bucketOf(long tick) {
+        return (int) Math.floorMod(tick, (long) buckets.size());
+    }
+
+    private record Timer<T>(T value, long dueTick) {
+    }
+}
@@ -0,0 +1,169 @@
+package nl.optifit.backendservice.utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Treap augmented with subtree sizes, so that rank lookups and positional range reads run in
+ * O(log n) respectively O(log n + k). Not thread-safe; callers are expected to guard access.
+ */
+public class OrderStatisticTree<T> {
+
+    private final Comparator<? super T> comparator;
+    private Node<T> root;
+
+    public OrderStatisticTree(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    public void insert(T value) {
+        Node<T>[] parts = split(root, value);
+        root = merge(merge(parts[0], new Node<>(value)), parts[1]);
+    }
+
+    public boolean remove(T value) {
+        int sizeBefore = size(root);
+        root = remove(root, value);
+        return size(root) < sizeBefore;
+    }
+
+    /**
+     * Returns the number of elements strictly smaller than the given value.
+     */
+    public int rank(T value) {
+        int rank = 0;
+        Node<T> node = root;
+        while (node != null) {
+            if (comparator.compare(value, node.value) <= 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns up to {@code count} elements starting at position {@code from}, in ascending order, or in
+     * descending order when {@code descending} is set (position 0 then being the largest element).
+     */
+    public List<T> range(int from, int count, boolean descending) {
+        int total = size(root);
+        if (from < 0 || count <= 0 || from >= total) {
+            return List.of();
+        }
+
+        int to = Math.min(total, from + count);
+        List<T> result = new ArrayList<>(to - from);
+        if (descending) {
+            collect(root, total - to, total - from, result);
+            Collections.reverse(result);
+        } else {
+            collect(root, from, to, result);
+        }
+        return result;
+    }
+
+    private void collect(Node<T> node, int from, int to, List<T> out) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (from < leftSize) {
+            collect(node.left, from, Math.min(to, leftSize), out);
+        }
+        if (from <= leftSize && leftSize < to) {
+            out.add(node.value);
+        }
+        if (to > leftSize + 1) {
+            collect(node.right, Math.max(0, from - leftSize - 1), to - leftSize - 1, out);
+        }
+    }
+
+    private Node<T> remove(Node<T> node, T value) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = comparator.compare(value, node.value);
+        if (cmp < 0) {
+            node.left = remove(node.left, value);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, value);
+        } else {
+            return merge(node.left, node.right);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * Splits into a tree with all elements smaller than the value and a tree with the remaining elements.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<T>[] split(Node<T> node, T value) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (comparator.compare(node.value, value) < 0) {
+            Node<T>[] parts = split(node.right, value);
+            node.right = parts[0];
+            node.update();
+            return new Node[]{node, parts[1]};
+        } else {
+            Node<T>[] parts = split(node.left, value);
+            node.left = parts[1];
+            node.update();
+            return new Node[]{parts[0], node};
+        }
+    }
+
+    private Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<T> {
+        private final T value;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int size = 1;
+        private Node<T> left;
+        private Node<T> right;
+
+        private Node(T value) {
+            this.value = value;
+        }
+
+        private void update() {
+            size = 1 + size(left) + size(right);
+        }
+    }
+}
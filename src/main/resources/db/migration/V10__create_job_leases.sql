@@ -0,0 +1,8 @@
+CREATE TABLE job_leases
+(
+    name         varchar(255) PRIMARY KEY,
+    owner        varchar(255)                NOT NULL,
+    locked_until timestamp(6) with time zone NOT NULL,
+    run_key      varchar(255)                NOT NULL,
+    completed    boolean                     NOT NULL
+);
@@ -0,0 +1,15 @@
+CREATE TABLE notification_outbox
+(
+    id              uuid PRIMARY KEY,
+    session_id      uuid                        NOT NULL REFERENCES sessions (id) ON DELETE CASCADE,
+    account_id      varchar(255)                NOT NULL,
+    session_start   timestamp(6) with time zone NOT NULL,
+    status          varchar(255)                NOT NULL,
+    attempts        integer                     NOT NULL,
+    next_attempt_at timestamp(6) with time zone NOT NULL,
+    created_at      timestamp(6) with time zone NOT NULL,
+    sent_at         timestamp(6) with time zone,
+    last_error      varchar(1000)
+);
+CREATE INDEX idx_notification_outbox_due ON notification_outbox (next_attempt_at) WHERE status = 'PENDING';
+CREATE INDEX idx_notification_outbox_session_id ON notification_outbox (session_id);
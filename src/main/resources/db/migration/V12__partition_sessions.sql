@@ -0,0 +1,54 @@
+-- Range-partitions sessions by session_start, one partition per UTC day. Partitions are named sessions_pYYYYMMDD;
+-- SessionPartitionService creates upcoming ones and moves expired ones into sessions_archive. A primary key on a
+-- partitioned table has to include the partition key, so sessions can no longer be the target of a foreign key.
+ALTER TABLE notification_outbox DROP CONSTRAINT notification_outbox_session_id_fkey;
+
+ALTER TABLE sessions RENAME TO sessions_unpartitioned;
+
+CREATE TABLE sessions
+(
+    LIKE sessions_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS,
+    CONSTRAINT pk_sessions PRIMARY KEY (id, session_start),
+    CONSTRAINT fk_sessions_account_id FOREIGN KEY (account_id) REFERENCES accounts (account_id),
+    CONSTRAINT fk_sessions_exercise_video_id FOREIGN KEY (exercise_video_id) REFERENCES videos (id)
+) PARTITION BY RANGE (session_start);
+
+CREATE TABLE sessions_default PARTITION OF sessions DEFAULT;
+
+DO
+$$
+    DECLARE
+        today     date := (now() AT TIME ZONE 'UTC')::date;
+        first_day date := least(coalesce((SELECT min(session_start AT TIME ZONE 'UTC')::date FROM sessions_unpartitioned), today), today);
+        day       date;
+    BEGIN
+        FOR day IN SELECT generate_series(first_day, today + 7, INTERVAL '1 day')::date
+            LOOP
+                EXECUTE format('CREATE TABLE %I PARTITION OF sessions FOR VALUES FROM (%L) TO (%L)',
+                               'sessions_p' || to_char(day, 'YYYYMMDD'),
+                               day::timestamp AT TIME ZONE 'UTC',
+                               (day + 1)::timestamp AT TIME ZONE 'UTC');
+            END LOOP;
+    END
+$$;
+
+-- Sessions without a start cannot be routed to a partition
+INSERT INTO sessions
+SELECT *
+FROM sessions_unpartitioned
+WHERE session_start IS NOT NULL;
+
+DROP TABLE sessions_unpartitioned;
+
+CREATE INDEX idx_sessions_account_id_session_start ON sessions (account_id, session_start);
+CREATE INDEX idx_sessions_open_session_start ON sessions (session_start) WHERE session_status = 'NEW';
+CREATE INDEX idx_sessions_expires_at ON sessions (expires_at) WHERE session_status = 'NEW';
+
+-- Expired partitions are attached here instead of being deleted, so the session history stays available
+CREATE TABLE sessions_archive
+(
+    LIKE sessions INCLUDING DEFAULTS INCLUDING CONSTRAINTS,
+    CONSTRAINT pk_sessions_archive PRIMARY KEY (id, session_start)
+) PARTITION BY RANGE (session_start);
+
+CREATE INDEX idx_sessions_archive_account_id_session_start ON sessions_archive (account_id, session_start);
@@ -0,0 +1,4 @@
+-- Match the keyset order of the account session listing (newest first, id as tie-breaker) and its status filter
+DROP INDEX idx_sessions_account_id_session_start;
+CREATE INDEX idx_sessions_account_id_session_start_id ON sessions (account_id, session_start DESC, id DESC);
+CREATE INDEX idx_sessions_account_id_session_status ON sessions (account_id, session_status, session_start DESC);
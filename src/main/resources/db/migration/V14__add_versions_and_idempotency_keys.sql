@@ -0,0 +1,14 @@
+ALTER TABLE sessions ADD COLUMN version bigint NOT NULL DEFAULT 0;
+ALTER TABLE sessions_archive ADD COLUMN version bigint NOT NULL DEFAULT 0;
+ALTER TABLE leaderboards ADD COLUMN version bigint NOT NULL DEFAULT 0;
+
+CREATE TABLE idempotency_keys
+(
+    account_id      varchar(255)                NOT NULL,
+    idempotency_key varchar(255)                NOT NULL,
+    request         varchar(512)                NOT NULL,
+    applied         boolean,
+    created_at      timestamp(6) with time zone NOT NULL,
+    CONSTRAINT pk_idempotency_keys PRIMARY KEY (account_id, idempotency_key)
+);
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
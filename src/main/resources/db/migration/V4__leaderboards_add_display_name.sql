@@ -0,0 +1,2 @@
+ALTER TABLE leaderboards ADD COLUMN display_name varchar;
+CREATE INDEX idx_leaderboards_display_name ON leaderboards (display_name);
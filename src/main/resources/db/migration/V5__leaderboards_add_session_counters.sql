@@ -0,0 +1,15 @@
+ALTER TABLE leaderboards ADD COLUMN sessions_since_reset integer NOT NULL DEFAULT 0;
+ALTER TABLE leaderboards ADD COLUMN completed_since_reset integer NOT NULL DEFAULT 0;
+
+-- Leaderboards that were never reset count their whole history
+UPDATE leaderboards l
+SET sessions_since_reset  = (SELECT count(*)
+                             FROM sessions s
+                             WHERE s.account_id = l.account_id
+                               AND s.session_status <> 'NEW'
+                               AND s.session_start > (coalesce(l.reset_at, '-infinity') AT TIME ZONE 'Europe/Amsterdam')),
+    completed_since_reset = (SELECT count(*)
+                             FROM sessions s
+                             WHERE s.account_id = l.account_id
+                               AND s.session_status = 'COMPLETED'
+                               AND s.session_start > (coalesce(l.reset_at, '-infinity') AT TIME ZONE 'Europe/Amsterdam'));
@@ -0,0 +1,16 @@
+CREATE TABLE leaderboard_snapshots
+(
+    id              bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    period_start    timestamp(6),
+    period_end      timestamp(6)     NOT NULL,
+    account_id      varchar(255)     NOT NULL,
+    display_name    varchar(255),
+    score           integer,
+    completion_rate double precision NOT NULL,
+    current_streak  integer          NOT NULL,
+    longest_streak  integer          NOT NULL,
+    winner          boolean          NOT NULL
+);
+
+CREATE INDEX idx_leaderboard_snapshots_period_end ON leaderboard_snapshots (period_end);
+CREATE INDEX idx_leaderboard_snapshots_account_id ON leaderboard_snapshots (account_id);
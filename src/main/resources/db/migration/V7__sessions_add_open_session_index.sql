@@ -0,0 +1 @@
+CREATE INDEX idx_sessions_open_session_start ON sessions (session_start) WHERE session_status = 'NEW';
@@ -0,0 +1,3 @@
+ALTER TABLE sessions ADD COLUMN expires_at timestamp(6) with time zone;
+UPDATE sessions SET expires_at = session_start + INTERVAL '1 hour' WHERE session_status = 'NEW';
+CREATE INDEX idx_sessions_expires_at ON sessions (expires_at) WHERE session_status = 'NEW';
@@ -0,0 +1,7 @@
+CREATE TABLE session_schedule_runs
+(
+    id            varchar(255) PRIMARY KEY,
+    timezone      varchar(255)                NOT NULL,
+    event         varchar(255)                NOT NULL,
+    last_fired_at timestamp(6) with time zone NOT NULL
+);
@@ -0,0 +1,76 @@
+package nl.optifit.backendservice.simulation;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Draws latencies and failures for the simulated downstreams and counts the calls made to each of them.
+ */
+@Component
+@Profile("simulation")
+public class FaultInjector {
+
+    private static final double Z_99 = 2.3263;
+
+    private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> failures = new ConcurrentHashMap<>();
+
+    /**
+     * Blocks for the latency of one round trip to the downstream.
+     *
+     * @return whether the call should fail
+     */
+    public boolean call(String downstream, SimulationProperties.Fault fault) {
+        calls.computeIfAbsent(downstream, name -> new AtomicLong()).incrementAndGet();
+        sleep(sampleLatency(fault));
+        return fails(downstream, fault);
+    }
+
+    /**
+     * Draws a failure without a round trip, for the individual steps of a batch request.
+     */
+    public boolean fails(String downstream, SimulationProperties.Fault fault) {
+        boolean failed = ThreadLocalRandom.current().nextDouble() < fault.errorRate();
+        if (failed) {
+            failures.computeIfAbsent(downstream, name -> new AtomicLong()).incrementAndGet();
+        }
+        return failed;
+    }
+
+    public Map<String, Calls> snapshot() {
+        Map<String, Calls> snapshot = new TreeMap<>();
+        calls.forEach((downstream, count) -> snapshot.put(downstream, new Calls(count.get(), failures.getOrDefault(downstream, new AtomicLong()).get())));
+        return snapshot;
+    }
+
+    private static Duration sampleLatency(SimulationProperties.Fault fault) {
+        long median = fault.median().toNanos();
+        if (median <= 0) {
+            return Duration.ZERO;
+        }
+        long p99 = fault.p99().toNanos();
+        double sigma = p99 > median ? Math.log((double) p99 / median) / Z_99 : 0;
+        return Duration.ofNanos((long) (median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian())));
+    }
+
+    private static void sleep(Duration latency) {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public record Calls(long calls, long failures) {
+        Calls minus(Calls before) {
+            return before == null ? this : new Calls(calls - before.calls, failures - before.failures);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package nl.optifit.backendservice.simulation;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.TransientAiException;
+
+import java.util.List;
+
+/**
+ * Chat model in place of OpenAI that answers every prompt with a fixed reply after the simulated latency.
+ */
+public class SimulatedChatModel implements ChatModel {
+
+    private static final String DOWNSTREAM = "openai";
+
+    private final FaultInjector faultInjector;
+    private final SimulationProperties.Fault fault;
+
+    public SimulatedChatModel(FaultInjector faultInjector, SimulationProperties.Fault fault) {
+        this.faultInjector = faultInjector;
+        this.fault = fault;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        if (faultInjector.call(DOWNSTREAM, fault)) {
+            throw new TransientAiException("Simulated OpenAI outage");
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage("Simulated answer"))));
+    }
+}
@@ -0,0 +1,92 @@
+package nl.optifit.backendservice.simulation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Serves a Drive where every user folder holds the same number of documents. Folder and document ids are derived
+ * from the username, so repeated syncs see the same files.
+ */
+public class SimulatedDriveTransport extends MockHttpTransport {
+
+    private static final String DOWNSTREAM = "drive";
+    private static final String FOLDER_MIME_TYPE = "application/vnd.google-apps.folder";
+    private static final String DOCS_MIME_TYPE = "application/vnd.google-apps.document";
+
+    private final FaultInjector faultInjector;
+    private final SimulationProperties.Fault fault;
+    private final ObjectMapper objectMapper;
+    private final int filesPerUser;
+    private final String documentContent;
+
+    public SimulatedDriveTransport(FaultInjector faultInjector, SimulationProperties simulationProperties, ObjectMapper objectMapper) {
+        this.faultInjector = faultInjector;
+        this.fault = simulationProperties.getDrive();
+        this.objectMapper = objectMapper;
+        this.filesPerUser = simulationProperties.getFilesPerUser();
+        this.documentContent = StringUtils.repeat('x', simulationProperties.getDocumentSize());
+    }
+
+    @Override
+    public LowLevelHttpRequest buildRequest(String method, String url) {
+        return new MockLowLevelHttpRequest(url) {
+            @Override
+            public LowLevelHttpResponse execute() throws IOException {
+                return respond(method, new GenericUrl(url));
+            }
+        };
+    }
+
+    private MockLowLevelHttpResponse respond(String method, GenericUrl url) throws IOException {
+        if (faultInjector.call(DOWNSTREAM, fault)) {
+            return json(503, Map.of("error", Map.of("code", 503, "message", "Simulated Drive outage")));
+        }
+
+        List<String> pathParts = url.getPathParts();
+        if ("export".equals(pathParts.getLast())) {
+            return new MockLowLevelHttpResponse()
+                    .setContentType("text/plain")
+                    .setContent(documentContent);
+        }
+        if ("DELETE".equals(method)) {
+            return new MockLowLevelHttpResponse().setStatusCode(204);
+        }
+        if ("POST".equals(method)) {
+            return json(200, Map.of("id", UUID.randomUUID().toString(), "name", "folder"));
+        }
+
+        String query = (String) url.getFirst("q");
+        if (query == null) {
+            return json(200, Map.of("files", List.of()));
+        }
+        if (query.contains(FOLDER_MIME_TYPE)) {
+            String name = StringUtils.substringBetween(query, "name='", "'");
+            return json(200, Map.of("files", List.of(Map.of("id", "folder-" + name, "name", name, "mimeType", FOLDER_MIME_TYPE))));
+        }
+
+        String folderId = StringUtils.substringBetween(query, "'", "'");
+        List<Map<String, String>> files = IntStream.range(0, filesPerUser)
+                .mapToObj(i -> Map.of("id", "%s-%d".formatted(folderId, i), "name", "Document %d".formatted(i), "mimeType", DOCS_MIME_TYPE))
+                .toList();
+        return json(200, Map.of("files", files));
+    }
+
+    private MockLowLevelHttpResponse json(int status, Object body) throws IOException {
+        return new MockLowLevelHttpResponse()
+                .setStatusCode(status)
+                .setContentType("application/json; charset=UTF-8")
+                .setContent(objectMapper.writeValueAsString(body));
+    }
+}
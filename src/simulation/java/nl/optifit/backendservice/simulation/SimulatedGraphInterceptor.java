@@ -0,0 +1,94 @@
+package nl.optifit.backendservice.simulation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Answers Microsoft Graph requests without leaving the process. A $batch request costs one round trip and fails
+ * as a whole or per step, throttled steps carrying a Retry-After header like Graph does.
+ */
+@RequiredArgsConstructor
+public class SimulatedGraphInterceptor implements Interceptor {
+
+    private static final String DOWNSTREAM = "graph";
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final int RETRY_AFTER_SECONDS = 5;
+
+    private final FaultInjector faultInjector;
+    private final SimulationProperties.Fault fault;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String path = request.url().encodedPath();
+        if ("POST".equals(request.method()) && path.endsWith("/$batch")) {
+            if (faultInjector.call(DOWNSTREAM, fault)) {
+                return respond(request, 503, error("ServiceUnavailable", "Simulated Graph outage"));
+            }
+            return respond(request, 200, batch(request));
+        }
+        return respond(request, 404, error("ResourceNotFound", "%s %s is not simulated".formatted(request.method(), path)));
+    }
+
+    private ObjectNode batch(Request request) throws IOException {
+        Buffer buffer = new Buffer();
+        request.body().writeTo(buffer);
+        JsonNode steps = objectMapper.readTree(buffer.readUtf8()).path("requests");
+
+        ObjectNode content = objectMapper.createObjectNode();
+        ArrayNode responses = content.putArray("responses");
+        for (JsonNode step : steps) {
+            ObjectNode response = responses.addObject();
+            response.put("id", step.path("id").asText());
+            ObjectNode headers = response.putObject("headers");
+            headers.put("Content-Type", "application/json");
+            if (faultInjector.fails(DOWNSTREAM, fault)) {
+                response.put("status", 429);
+                headers.put("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+                response.set("body", error("TooManyRequests", "Simulated throttling"));
+            } else {
+                response.put("status", 201);
+                response.set("body", event());
+            }
+        }
+        return content;
+    }
+
+    private ObjectNode event() {
+        ObjectNode event = objectMapper.createObjectNode();
+        event.put("id", UUID.randomUUID().toString());
+        return event;
+    }
+
+    private ObjectNode error(String code, String message) {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.putObject("error")
+                .put("code", code)
+                .put("message", message);
+        return error;
+    }
+
+    private Response respond(Request request, int status, JsonNode body) throws IOException {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(status)
+                .message("Simulated")
+                .body(ResponseBody.create(objectMapper.writeValueAsString(body), JSON))
+                .build();
+    }
+}
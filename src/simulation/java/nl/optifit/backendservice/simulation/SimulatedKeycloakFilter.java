@@ -0,0 +1,88 @@
+package nl.optifit.backendservice.simulation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Answers the Keycloak admin user requests of the real admin client from an in-memory realm, without leaving the
+ * process. Every request costs one round trip; list pages default to 100 users like Keycloak does, and other
+ * endpoints answer 404.
+ */
+public class SimulatedKeycloakFilter implements ClientRequestFilter {
+
+    private static final String DOWNSTREAM = "keycloak";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final NavigableMap<String, UserRepresentation> users = new ConcurrentSkipListMap<>();
+    private final FaultInjector faultInjector;
+    private final SimulationProperties.Fault fault;
+    private final ObjectMapper objectMapper;
+    private final String usersPath;
+
+    public SimulatedKeycloakFilter(FaultInjector faultInjector, SimulationProperties simulationProperties, ObjectMapper objectMapper, String realm) {
+        this.faultInjector = faultInjector;
+        this.fault = simulationProperties.getKeycloak();
+        this.objectMapper = objectMapper;
+        this.usersPath = "/admin/realms/%s/users".formatted(realm);
+    }
+
+    public void addUser(UserRepresentation user) {
+        users.put(user.getId(), user);
+    }
+
+    @Override
+    public void filter(ClientRequestContext request) throws IOException {
+        String path = request.getUri().getPath();
+        if (!"GET".equals(request.getMethod()) || !path.startsWith(usersPath)) {
+            request.abortWith(respond(404, error("%s %s is not simulated".formatted(request.getMethod(), path))));
+            return;
+        }
+        if (faultInjector.call(DOWNSTREAM, fault)) {
+            request.abortWith(respond(503, error("Simulated Keycloak outage")));
+            return;
+        }
+
+        String resource = path.substring(usersPath.length());
+        if (resource.isEmpty() || resource.equals("/")) {
+            MultiValueMap<String, String> query = UriComponentsBuilder.fromUri(request.getUri()).build().getQueryParams();
+            request.abortWith(respond(200, page(intParam(query, "first", 0), intParam(query, "max", DEFAULT_PAGE_SIZE))));
+        } else if (resource.equals("/count")) {
+            request.abortWith(respond(200, users.size()));
+        } else {
+            UserRepresentation user = users.get(resource.substring(1));
+            request.abortWith(user == null ? respond(404, error("User not found")) : respond(200, user));
+        }
+    }
+
+    private List<UserRepresentation> page(int first, int max) {
+        return users.values().stream().skip(first).limit(max).toList();
+    }
+
+    private static int intParam(MultiValueMap<String, String> query, String name, int defaultValue) {
+        String value = query.getFirst(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static Map<String, String> error(String message) {
+        return Map.of("error", message);
+    }
+
+    private Response respond(int status, Object body) throws IOException {
+        return Response.status(status)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(objectMapper.writeValueAsString(body))
+                .build();
+    }
+}
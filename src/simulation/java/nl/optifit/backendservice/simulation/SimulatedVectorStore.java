@@ -0,0 +1,70 @@
+package nl.optifit.backendservice.simulation;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory vector store in place of a Cosmos DB container. Search ignores similarity and returns the documents
+ * matching the filter, which supports the equality and conjunction expressions this application builds.
+ */
+public class SimulatedVectorStore implements VectorStore {
+
+    private static final String DOWNSTREAM = "cosmos";
+
+    private final Map<String, Document> documents = new ConcurrentHashMap<>();
+    private final FaultInjector faultInjector;
+    private final SimulationProperties.Fault fault;
+
+    public SimulatedVectorStore(FaultInjector faultInjector, SimulationProperties.Fault fault) {
+        this.faultInjector = faultInjector;
+        this.fault = fault;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        roundTrip();
+        documents.forEach(document -> this.documents.put(document.getId(), document));
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        roundTrip();
+        idList.forEach(documents::remove);
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        roundTrip();
+        documents.values().removeIf(document -> matches(document, filterExpression));
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        roundTrip();
+        return documents.values().stream()
+                .filter(document -> !request.hasFilterExpression() || matches(document, request.getFilterExpression()))
+                .limit(request.getTopK())
+                .toList();
+    }
+
+    private void roundTrip() {
+        if (faultInjector.call(DOWNSTREAM, fault)) {
+            throw new IllegalStateException("Simulated Cosmos DB outage");
+        }
+    }
+
+    private static boolean matches(Document document, Filter.Expression expression) {
+        return switch (expression.type()) {
+            case AND -> matches(document, (Filter.Expression) expression.left()) && matches(document, (Filter.Expression) expression.right());
+            case EQ -> Objects.equals(document.getMetadata().get(((Filter.Key) expression.left()).key()), ((Filter.Value) expression.right()).value());
+            default -> throw new UnsupportedOperationException("Filter '%s' is not simulated".formatted(expression.type()));
+        };
+    }
+}
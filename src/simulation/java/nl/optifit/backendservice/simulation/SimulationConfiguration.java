@@ -0,0 +1,105 @@
+package nl.optifit.backendservice.simulation;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.Drive;
+import com.microsoft.graph.serviceclient.GraphServiceClient;
+import com.microsoft.kiota.authentication.AnonymousAuthenticationProvider;
+import okhttp3.OkHttpClient;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Replaces the clients of every external system with in-process stand-ins, so the application can be run against
+ * nothing but a local database. The beans keep the names of the ones they replace; as an auto-configuration this
+ * class is processed after the application's own configuration, so its definitions are the ones that remain.
+ */
+@AutoConfiguration
+@Profile("simulation")
+public class SimulationConfiguration {
+
+    @Bean
+    public SimulatedKeycloakFilter simulatedKeycloakFilter(FaultInjector faultInjector,
+                                                           SimulationProperties simulationProperties,
+                                                           ObjectMapper objectMapper,
+                                                           @Value("${keycloak.realm.smym}") String realm) {
+        return new SimulatedKeycloakFilter(faultInjector, simulationProperties, objectMapper, realm);
+    }
+
+    @Bean
+    public Keycloak keycloak(SimulatedKeycloakFilter simulatedKeycloakFilter,
+                             @Value("${keycloak.auth-server-url}") String serverUrl,
+                             @Value("${keycloak.realm.master}") String realm,
+                             @Value("${keycloak.client.admin}") String clientId) {
+        return KeycloakBuilder.builder()
+                .serverUrl(serverUrl)
+                .realm(realm)
+                .clientId(clientId)
+                .authorization("simulation")
+                .resteasyClient(Keycloak.getClientProvider().newRestEasyClient(null, null, false).register(simulatedKeycloakFilter))
+                .build();
+    }
+
+    @Bean
+    public GraphServiceClient graphServiceClient(FaultInjector faultInjector, SimulationProperties simulationProperties, ObjectMapper objectMapper) {
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .addInterceptor(new SimulatedGraphInterceptor(faultInjector, simulationProperties.getGraph(), objectMapper))
+                .build();
+        return new GraphServiceClient(new AnonymousAuthenticationProvider(), httpClient);
+    }
+
+    @Bean
+    public Drive getDrive(FaultInjector faultInjector, SimulationProperties simulationProperties, ObjectMapper objectMapper) {
+        return new Drive.Builder(
+                new SimulatedDriveTransport(faultInjector, simulationProperties, objectMapper),
+                GsonFactory.getDefaultInstance(),
+                null
+        )
+                .setApplicationName("SMYM")
+                .build();
+    }
+
+    /**
+     * Building a Cosmos DB client connects to the account, and nothing uses it once the vector stores are replaced.
+     */
+    @Lazy
+    @Bean
+    public CosmosAsyncClient cosmosAsyncClient() {
+        throw new IllegalStateException("Cosmos DB is not available in the simulation, use the simulated vector stores");
+    }
+
+    @Bean("filesVectorStore")
+    public VectorStore filesVectorStore(FaultInjector faultInjector, SimulationProperties simulationProperties) {
+        return new SimulatedVectorStore(faultInjector, simulationProperties.getCosmos());
+    }
+
+    @Bean("chunksVectorStore")
+    public VectorStore chunksVectorStore(FaultInjector faultInjector, SimulationProperties simulationProperties) {
+        return new SimulatedVectorStore(faultInjector, simulationProperties.getCosmos());
+    }
+
+    @Bean
+    public ChatModel chatModel(FaultInjector faultInjector, SimulationProperties simulationProperties) {
+        return new SimulatedChatModel(faultInjector, simulationProperties.getOpenai());
+    }
+
+    /**
+     * Every run starts from an empty schema that the migrations build up, partitioned sessions included.
+     */
+    @Bean
+    public FlywayMigrationStrategy cleanMigrationStrategy() {
+        return flyway -> {
+            flyway.clean();
+            flyway.migrate();
+        };
+    }
+}
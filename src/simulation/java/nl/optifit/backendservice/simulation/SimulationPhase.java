@@ -0,0 +1,99 @@
+package nl.optifit.backendservice.simulation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Times the operations of one phase of the simulated day. Operations may be recorded concurrently. Database
+ * statements and downstream calls are counted for the whole phase, including work outside the timed operations.
+ */
+@Slf4j
+public class SimulationPhase {
+
+    private final String name;
+    private final long start = System.nanoTime();
+    private final long statementsBefore;
+    private final Map<String, FaultInjector.Calls> callsBefore;
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    SimulationPhase(String name, long statementsBefore, Map<String, FaultInjector.Calls> callsBefore) {
+        this.name = name;
+        this.statementsBefore = statementsBefore;
+        this.callsBefore = callsBefore;
+    }
+
+    /**
+     * Runs and times one operation. A failed operation is counted as an error and not rethrown.
+     *
+     * @param operation returns the number of items it processed
+     */
+    public void time(IntSupplier operation) {
+        long operationStart = System.nanoTime();
+        try {
+            items.addAndGet(operation.getAsInt());
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            log.debug("Operation of phase '{}' failed", name, e);
+        } finally {
+            latencies.add(System.nanoTime() - operationStart);
+        }
+    }
+
+    Result finish(long statementsAfter, Map<String, FaultInjector.Calls> callsAfter) {
+        long wallNanos = Math.max(1, System.nanoTime() - start);
+        long[] sorted;
+        synchronized (latencies) {
+            sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+
+        Map<String, FaultInjector.Calls> calls = new TreeMap<>();
+        callsAfter.forEach((downstream, after) -> {
+            FaultInjector.Calls delta = after.minus(callsBefore.get(downstream));
+            if (delta.calls() > 0 || delta.failures() > 0) {
+                calls.put(downstream, delta);
+            }
+        });
+
+        return new Result(name, sorted.length, errors.get(), items.get(),
+                TimeUnit.NANOSECONDS.toMillis(wallNanos),
+                items.get() * 1_000_000_000.0 / wallNanos,
+                percentileMs(sorted, 0.50),
+                percentileMs(sorted, 0.99),
+                statementsAfter - statementsBefore,
+                calls);
+    }
+
+    private static double percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+    }
+
+    public record Result(String phase, int operations, long errors, long items, long wallMs, double itemsPerSecond,
+                         double p50Ms, double p99Ms, long statements, Map<String, FaultInjector.Calls> downstreamCalls) {
+
+        public static final String HEADER = "%-20s %6s %6s %8s %9s %10s %9s %9s %10s  %s"
+                .formatted("phase", "ops", "errors", "items", "wall ms", "items/s", "p50 ms", "p99 ms", "statements", "downstream calls (failed)");
+
+        public String format() {
+            String calls = downstreamCalls.entrySet().stream()
+                    .map(entry -> "%s=%d(%d)".formatted(entry.getKey(), entry.getValue().calls(), entry.getValue().failures()))
+                    .collect(Collectors.joining(" "));
+            return "%-20s %6d %6d %8d %9d %10.1f %9.1f %9.1f %10d  %s"
+                    .formatted(phase, operations, errors, items, wallMs, itemsPerSecond, p50Ms, p99Ms, statements, calls);
+        }
+    }
+}
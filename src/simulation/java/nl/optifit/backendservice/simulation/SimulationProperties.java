@@ -0,0 +1,42 @@
+package nl.optifit.backendservice.simulation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+import java.util.List;
+
+@Getter
+@Setter
+@Configuration
+@Profile("simulation")
+@ConfigurationProperties(prefix = "simulation")
+public class SimulationProperties {
+    private int accounts = 1000;
+    private List<String> timezones = List.of("Europe/Amsterdam");
+    private long seed = 42;
+    private int mobilitiesPerAccount = 3;
+    private double completionRate = 0.6;
+    private int userConcurrency = 32;
+    private int filesPerUser = 5;
+    private int documentSize = 2048;
+    private boolean exitOnCompletion = true;
+    private Fault keycloak = new Fault(Duration.ofMillis(15), Duration.ofMillis(80), 0.001);
+    private Fault graph = new Fault(Duration.ofMillis(150), Duration.ofMillis(900), 0.01);
+    private Fault drive = new Fault(Duration.ofMillis(80), Duration.ofMillis(400), 0.005);
+    private Fault cosmos = new Fault(Duration.ofMillis(10), Duration.ofMillis(60), 0.001);
+    private Fault openai = new Fault(Duration.ofMillis(800), Duration.ofMillis(4000), 0.005);
+
+    /**
+     * Latency of a simulated call is log-normally distributed with the given median and 99th percentile.
+     *
+     * @param median    median latency of a call
+     * @param p99       99th percentile latency of a call
+     * @param errorRate fraction of calls that fail
+     */
+    public record Fault(Duration median, Duration p99, double errorRate) {
+    }
+}
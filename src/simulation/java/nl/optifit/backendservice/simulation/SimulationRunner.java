@@ -0,0 +1,223 @@
+package nl.optifit.backendservice.simulation;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.concurrency.Bulkheads;
+import nl.optifit.backendservice.cron.NotificationOutboxDispatcher;
+import nl.optifit.backendservice.cron.SessionSchedule;
+import nl.optifit.backendservice.dto.LeaderboardResetDto;
+import nl.optifit.backendservice.model.ExerciseType;
+import nl.optifit.backendservice.service.FileService;
+import nl.optifit.backendservice.service.JobLeaseService;
+import nl.optifit.backendservice.service.KeycloakService;
+import nl.optifit.backendservice.service.LeaderboardService;
+import nl.optifit.backendservice.service.SessionService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static nl.optifit.backendservice.concurrency.Downstream.DATABASE;
+import static nl.optifit.backendservice.model.ExerciseType.BACK;
+import static nl.optifit.backendservice.model.ExerciseType.HIP;
+import static nl.optifit.backendservice.model.ExerciseType.SHOULDER;
+
+/**
+ * Replays a working day against the seeded accounts: for every slot of {@link SessionSchedule} the sessions are
+ * created, their invites dispatched, a share of them completed by users and the rest expired by the update. The day
+ * ends with a leaderboard reset and a Drive sync. Instead of waiting for the wall clock, open sessions are moved an
+ * hour into the past before each update. Every phase goes through the same services, job leases and bulkheads as
+ * the schedulers do, and is reported with its throughput, latency percentiles, database statements and downstream
+ * calls.
+ */
+@Slf4j
+@Component
+@Profile("simulation")
+public class SimulationRunner implements ApplicationRunner {
+
+    private static final String AGE_OPEN_SESSIONS = """
+            UPDATE sessions
+            SET session_start = session_start - INTERVAL '61 minutes',
+                expires_at    = expires_at - INTERVAL '61 minutes'
+            WHERE session_status = 'NEW'
+            """;
+
+    private final SimulationProperties simulationProperties;
+    private final SimulationSeeder simulationSeeder;
+    private final FaultInjector faultInjector;
+    private final SessionSchedule sessionSchedule;
+    private final SessionService sessionService;
+    private final LeaderboardService leaderboardService;
+    private final FileService fileService;
+    private final KeycloakService keycloakService;
+    private final NotificationOutboxDispatcher notificationOutboxDispatcher;
+    private final JobLeaseService jobLeaseService;
+    private final Bulkheads bulkheads;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ConfigurableApplicationContext applicationContext;
+    private final int createShards;
+
+    private Statistics statistics;
+
+    public SimulationRunner(SimulationProperties simulationProperties,
+                            SimulationSeeder simulationSeeder,
+                            FaultInjector faultInjector,
+                            SessionSchedule sessionSchedule,
+                            SessionService sessionService,
+                            LeaderboardService leaderboardService,
+                            FileService fileService,
+                            KeycloakService keycloakService,
+                            NotificationOutboxDispatcher notificationOutboxDispatcher,
+                            JobLeaseService jobLeaseService,
+                            Bulkheads bulkheads,
+                            JdbcTemplate jdbcTemplate,
+                            EntityManagerFactory entityManagerFactory,
+                            ConfigurableApplicationContext applicationContext,
+                            @Value("${jobs.sessions.shards:8}") int createShards) {
+        this.simulationProperties = simulationProperties;
+        this.simulationSeeder = simulationSeeder;
+        this.faultInjector = faultInjector;
+        this.sessionSchedule = sessionSchedule;
+        this.sessionService = sessionService;
+        this.leaderboardService = leaderboardService;
+        this.fileService = fileService;
+        this.keycloakService = keycloakService;
+        this.notificationOutboxDispatcher = notificationOutboxDispatcher;
+        this.jobLeaseService = jobLeaseService;
+        this.bulkheads = bulkheads;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.applicationContext = applicationContext;
+        this.createShards = createShards;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        simulationSeeder.seed();
+
+        String runKey = Instant.now().toString();
+        Random random = new Random(simulationProperties.getSeed());
+        List<SimulationPhase.Result> results = new ArrayList<>();
+        results.add(warmUserDirectory());
+        replaySlot("morning", sessionSchedule.getMorning(), HIP, runKey, random, results);
+        replaySlot("lunch", sessionSchedule.getLunch(), SHOULDER, runKey, random, results);
+        replaySlot("afternoon", sessionSchedule.getAfternoon(), BACK, runKey, random, results);
+        results.add(replayLeaderboardReset(runKey));
+        results.add(replayDriveSync(runKey));
+
+        log.info("Simulated day for {} accounts:\n{}\n{}", simulationProperties.getAccounts(), SimulationPhase.Result.HEADER,
+                String.join("\n", results.stream().map(SimulationPhase.Result::format).toList()));
+
+        if (simulationProperties.isExitOnCompletion()) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+
+    private void replaySlot(String slot, SessionSchedule.TimeSlot timeSlot, ExerciseType exerciseType, String runKey,
+                            Random random, List<SimulationPhase.Result> results) {
+        log.info("Replaying {} slot (create {}, update {})", slot, timeSlot.create(), timeSlot.update());
+
+        SimulationPhase create = start(slot + ".create");
+        for (String timezone : simulationProperties.getTimezones()) {
+            jobLeaseService.runSharded("simulation:%s:%s.create".formatted(timezone, slot), runKey, createShards,
+                    shard -> create.time(() -> bulkheads.call(DATABASE, () -> sessionService.createSessions(timezone, exerciseType, shard, createShards)).sessions()));
+        }
+        results.add(finish(create));
+
+        SimulationPhase notify = start(slot + ".notify");
+        int[] claimed = new int[1];
+        do {
+            claimed[0] = 0;
+            notify.time(() -> claimed[0] = notificationOutboxDispatcher.dispatchBatch());
+        } while (claimed[0] > 0);
+        results.add(finish(notify));
+
+        results.add(completeSessions(slot, random));
+
+        jdbcTemplate.update(AGE_OPEN_SESSIONS);
+        SimulationPhase update = start(slot + ".update");
+        for (String timezone : simulationProperties.getTimezones()) {
+            jobLeaseService.runSharded("simulation:%s:%s.update".formatted(timezone, slot), runKey, 1,
+                    shard -> update.time(() -> bulkheads.call(DATABASE, () -> sessionService.expireOverdueSessions(timezone))));
+        }
+        results.add(finish(update));
+    }
+
+    /**
+     * Lets a share of the users complete their open session concurrently. Every request carries an idempotency key,
+     * so the cost of claiming it is part of the phase.
+     */
+    private SimulationPhase.Result completeSessions(String slot, Random random) {
+        List<String[]> openSessions = new ArrayList<>(jdbcTemplate.query("SELECT id, account_id FROM sessions WHERE session_status = 'NEW'",
+                (resultSet, rowNum) -> new String[]{resultSet.getString("id"), resultSet.getString("account_id")}));
+        Collections.shuffle(openSessions, random);
+        List<String[]> completions = openSessions.subList(0, (int) (openSessions.size() * simulationProperties.getCompletionRate()));
+
+        SimulationPhase complete = start(slot + ".complete");
+        try (ExecutorService executor = Executors.newFixedThreadPool(simulationProperties.getUserConcurrency())) {
+            completions.forEach(session -> executor.submit(() -> complete.time(() ->
+                    sessionService.updateSessionForAccount(session[1], session[0], UUID.randomUUID().toString()) ? 1 : 0)));
+        }
+        return finish(complete);
+    }
+
+    /**
+     * Runners complete before the application is ready, so the user directory is warmed here, as it would be on any
+     * instance that has been up for a while.
+     */
+    private SimulationPhase.Result warmUserDirectory() {
+        SimulationPhase warm = start("directory.warm");
+        warm.time(() -> {
+            keycloakService.warmUserDirectory();
+            return simulationProperties.getAccounts();
+        });
+        return finish(warm);
+    }
+
+    private SimulationPhase.Result replayLeaderboardReset(String runKey) {
+        SimulationPhase reset = start("leaderboard.reset");
+        jobLeaseService.runOnce("simulation:leaderboard.reset", runKey, () -> reset.time(() -> {
+            LeaderboardResetDto result = leaderboardService.resetLeaderboard();
+            sessionService.removeStaleSessions();
+            return result.resetCount();
+        }));
+        return finish(reset);
+    }
+
+    private SimulationPhase.Result replayDriveSync(String runKey) {
+        SimulationPhase sync = start("drive.sync");
+        jobLeaseService.runOnce("simulation:drive.sync", runKey, () -> sync.time(() -> {
+            fileService.syncFiles();
+            return simulationProperties.getAccounts();
+        }));
+        return finish(sync);
+    }
+
+    private SimulationPhase start(String phase) {
+        return new SimulationPhase(phase, statistics.getPrepareStatementCount(), faultInjector.snapshot());
+    }
+
+    private SimulationPhase.Result finish(SimulationPhase phase) {
+        SimulationPhase.Result result = phase.finish(statistics.getPrepareStatementCount(), faultInjector.snapshot());
+        log.info(result.format());
+        return result;
+    }
+}
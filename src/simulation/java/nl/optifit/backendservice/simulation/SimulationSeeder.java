@@ -0,0 +1,136 @@
+package nl.optifit.backendservice.simulation;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import nl.optifit.backendservice.model.Account;
+import nl.optifit.backendservice.model.ExerciseType;
+import nl.optifit.backendservice.model.ExerciseVideo;
+import nl.optifit.backendservice.model.Mobility;
+import nl.optifit.backendservice.repository.ExerciseVideoRepository;
+import nl.optifit.backendservice.service.ExerciseVideoCatalog;
+import nl.optifit.backendservice.service.LeaderboardService;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Seeds accounts with leaderboards and mobility measurements, and registers a matching user for each of them in the
+ * simulated Keycloak. The data only depends on the seed, so runs with the same settings are comparable.
+ */
+@Slf4j
+@Component
+@Profile("simulation")
+public class SimulationSeeder {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final SimulationProperties simulationProperties;
+    private final SimulatedKeycloakFilter simulatedKeycloakFilter;
+    private final ExerciseVideoRepository exerciseVideoRepository;
+    private final ExerciseVideoCatalog exerciseVideoCatalog;
+    private final LeaderboardService leaderboardService;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public SimulationSeeder(SimulationProperties simulationProperties,
+                            SimulatedKeycloakFilter simulatedKeycloakFilter,
+                            ExerciseVideoRepository exerciseVideoRepository,
+                            ExerciseVideoCatalog exerciseVideoCatalog,
+                            LeaderboardService leaderboardService,
+                            TransactionTemplate transactionTemplate) {
+        this.simulationProperties = simulationProperties;
+        this.simulatedKeycloakFilter = simulatedKeycloakFilter;
+        this.exerciseVideoRepository = exerciseVideoRepository;
+        this.exerciseVideoCatalog = exerciseVideoCatalog;
+        this.leaderboardService = leaderboardService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void seed() {
+        long start = System.nanoTime();
+        Random random = new Random(simulationProperties.getSeed());
+        seedExerciseVideos();
+
+        List<Account> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < simulationProperties.getAccounts(); i++) {
+            chunk.add(newAccount(i, random));
+            if (chunk.size() == CHUNK_SIZE) {
+                persist(chunk);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        persist(chunk);
+        leaderboardService.invalidateIndex();
+
+        log.info("Seeded {} accounts in {} timezones in {} ms", simulationProperties.getAccounts(),
+                simulationProperties.getTimezones().size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void seedExerciseVideos() {
+        if (exerciseVideoRepository.count() > 0) {
+            return;
+        }
+
+        List<ExerciseVideo> videos = new ArrayList<>();
+        for (ExerciseType exerciseType : ExerciseType.values()) {
+            for (int score = 1; score <= 3; score++) {
+                videos.add(ExerciseVideo.builder()
+                        .exerciseType(exerciseType)
+                        .score(score)
+                        .videoUrl("https://videos.example.com/%s-%d".formatted(exerciseType.name().toLowerCase(), score))
+                        .build());
+            }
+        }
+        exerciseVideoRepository.saveAll(videos);
+        exerciseVideoCatalog.invalidate();
+    }
+
+    private Account newAccount(int index, Random random) {
+        String accountId = UUID.nameUUIDFromBytes("simulation-%d-%d".formatted(simulationProperties.getSeed(), index).getBytes(StandardCharsets.UTF_8)).toString();
+        UserRepresentation user = new UserRepresentation();
+        user.setId(accountId);
+        user.setUsername("simulated.user%d".formatted(index));
+        user.setFirstName("Simulated");
+        user.setLastName("User %d".formatted(index));
+        user.setEmail("simulated.user%d@example.com".formatted(index));
+        user.setEnabled(true);
+        simulatedKeycloakFilter.addUser(user);
+
+        List<String> timezones = simulationProperties.getTimezones();
+        Account account = Account.builder()
+                .id(accountId)
+                .timezone(timezones.get(index % timezones.size()))
+                .build();
+        account.setLeaderboard(leaderboardService.createLeaderboardForAccount(account, "%s %s".formatted(user.getFirstName(), user.getLastName())));
+
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < simulationProperties.getMobilitiesPerAccount(); i++) {
+            account.getMobilities().add(Mobility.builder()
+                    .account(account)
+                    .measuredOn(today.minusWeeks(i))
+                    .hip(1 + random.nextInt(3))
+                    .shoulder(1 + random.nextInt(3))
+                    .back(1 + random.nextInt(3))
+                    .build());
+        }
+        return account;
+    }
+
+    private void persist(List<Account> accounts) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> accounts.forEach(entityManager::persist));
+    }
+}
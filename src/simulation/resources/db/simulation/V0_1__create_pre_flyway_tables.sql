@@ -0,0 +1,29 @@
+-- Existing databases were created by Hibernate before Flyway took over and were baselined at version 0. The simulation
+-- starts from an empty schema, so this recreates the part of those tables the migrations build on; ddl-auto: update
+-- adds the remaining tables and columns afterwards, as it does on the other environments.
+CREATE TABLE accounts
+(
+    account_id varchar(255) PRIMARY KEY
+);
+
+CREATE TABLE videos
+(
+    id uuid PRIMARY KEY
+);
+
+CREATE TABLE leaderboards
+(
+    account_id varchar(255) PRIMARY KEY REFERENCES accounts (account_id),
+    reset_at   timestamp(6)
+);
+
+CREATE TABLE sessions
+(
+    id                     uuid PRIMARY KEY,
+    account_id             varchar(255) NOT NULL REFERENCES accounts (account_id),
+    exercise_video_id      uuid REFERENCES videos (id),
+    exercise_type          varchar(255) NOT NULL,
+    session_status         varchar(255) NOT NULL,
+    session_start          timestamp(6) with time zone,
+    session_execution_time timestamp(6) with time zone
+);
@@ -0,0 +1,120 @@
+package nl.optifit.backendservice.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static nl.optifit.backendservice.concurrency.Downstream.GRAPH;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void permitIsReleasedWhenCallThrows() throws Exception {
+        Bulkhead bulkhead = bulkhead(1, 0, Duration.ofMillis(100));
+
+        assertThatThrownBy(() -> bulkhead.call(() -> {
+            throw new IOException("Graph is down");
+        })).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> bulkhead.call(() -> {
+            throw new IllegalStateException("Unexpected response");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(bulkhead.call(() -> "ok")).isEqualTo("ok");
+        assertThat(meterRegistry.get("bulkhead.active").gauge().value()).isZero();
+    }
+
+    @Test
+    void callerIsRejectedAfterMaxWait() throws Exception {
+        Bulkhead bulkhead = bulkhead(1, 0, Duration.ofMillis(50));
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> bulkhead.call(() -> {
+            holding.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        holding.await();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> bulkhead.call(() -> "too late"))
+                .isInstanceOf(BulkheadRejectedException.class)
+                .hasMessageContaining("GRAPH");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(50));
+        assertThat(meterRegistry.get("bulkhead.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        holder.get();
+        assertThat(bulkhead.call(() -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void concurrentCallsAreLimitedToPermits() throws Exception {
+        Bulkhead bulkhead = bulkhead(2, 0, Duration.ofSeconds(5));
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        for (int i = 0; i < 20; i++) {
+            executor.submit(() -> bulkhead.call(() -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                return active.decrementAndGet();
+            }));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(maxActive.get()).isEqualTo(2);
+    }
+
+    @Test
+    void callsBeyondBurstAreSpreadOverTime() throws Exception {
+        Bulkhead bulkhead = bulkhead(8, 20, Duration.ofSeconds(5));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 25; i++) {
+            bulkhead.call(() -> null);
+        }
+
+        // 20 calls fit in the burst, the remaining 5 are spaced 50 ms apart
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(240));
+    }
+
+    @Test
+    void interruptedCallerIsRejectedAndKeepsInterruptFlag() throws Exception {
+        Bulkhead bulkhead = bulkhead(1, 0, Duration.ofSeconds(5));
+        CountDownLatch holding = new CountDownLatch(1);
+        executor.submit(() -> bulkhead.call(() -> {
+            holding.countDown();
+            Thread.sleep(5_000);
+            return null;
+        }));
+        holding.await();
+
+        Thread.currentThread().interrupt();
+        assertThatThrownBy(() -> bulkhead.call(() -> "interrupted"))
+                .isInstanceOf(BulkheadRejectedException.class);
+        assertThat(Thread.interrupted()).isTrue();
+    }
+
+    private Bulkhead bulkhead(int permits, double ratePerSecond, Duration maxWait) {
+        return new Bulkhead(GRAPH, new BulkheadProperties.Limits(permits, ratePerSecond, maxWait), meterRegistry);
+    }
+}
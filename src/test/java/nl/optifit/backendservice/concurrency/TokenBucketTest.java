@@ -0,0 +1,92 @@
+package nl.optifit.backendservice.concurrency;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TokenBucketTest {
+
+    // Waits are computed in floating point and rounded up to whole nanoseconds
+    private static final Offset<Long> ROUNDING = within(1L);
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void fullBucketAllowsBurstOfItsCapacity() {
+        TokenBucket tokenBucket = new TokenBucket(10, clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(tokenBucket.reserve()).isZero();
+        }
+        assertThat(tokenBucket.reserve()).isCloseTo(millis(100), ROUNDING);
+    }
+
+    @Test
+    void reservationsOnCreditAreSpacedByTheRate() {
+        TokenBucket tokenBucket = drained(10);
+
+        assertThat(tokenBucket.reserve()).isCloseTo(millis(100), ROUNDING);
+        assertThat(tokenBucket.reserve()).isCloseTo(millis(200), ROUNDING);
+        assertThat(tokenBucket.reserve()).isCloseTo(millis(300), ROUNDING);
+    }
+
+    @Test
+    void tokensRefillWithElapsedTime() {
+        TokenBucket tokenBucket = drained(10);
+
+        clock.addAndGet(millis(250));
+
+        assertThat(tokenBucket.reserve()).isZero();
+        assertThat(tokenBucket.reserve()).isZero();
+        assertThat(tokenBucket.reserve()).isCloseTo(millis(50), ROUNDING);
+    }
+
+    @Test
+    void refillIsCappedAtCapacity() {
+        TokenBucket tokenBucket = drained(10);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(tokenBucket.reserve()).isZero();
+        }
+        assertThat(tokenBucket.reserve()).isCloseTo(millis(100), ROUNDING);
+    }
+
+    @Test
+    void debtIsPaidOffBeforeTokensAreAvailableAgain() {
+        TokenBucket tokenBucket = drained(10);
+        tokenBucket.reserve();
+        tokenBucket.reserve();
+
+        // Two tokens were taken on credit, so after 200 ms the bucket is empty again
+        clock.addAndGet(millis(200));
+
+        assertThat(tokenBucket.reserve()).isCloseTo(millis(100), ROUNDING);
+    }
+
+    @Test
+    void rateBelowOnePerSecondStillAllowsOneCall() {
+        TokenBucket tokenBucket = new TokenBucket(0.5, clock::get);
+
+        assertThat(tokenBucket.reserve()).isZero();
+        assertThat(tokenBucket.reserve()).isCloseTo(TimeUnit.SECONDS.toNanos(2), ROUNDING);
+    }
+
+    private TokenBucket drained(double ratePerSecond) {
+        TokenBucket tokenBucket = new TokenBucket(ratePerSecond, clock::get);
+        for (int i = 0; i < ratePerSecond; i++) {
+            tokenBucket.reserve();
+        }
+        return tokenBucket;
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
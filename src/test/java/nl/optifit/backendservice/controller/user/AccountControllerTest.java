@@ -0,0 +1,112 @@
+package nl.optifit.backendservice.controller.user;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import nl.optifit.backendservice.exception.GlobalExceptionHandler;
+import nl.optifit.backendservice.repository.SessionRepository;
+import nl.optifit.backendservice.service.AccountService;
+import nl.optifit.backendservice.service.BiometricsService;
+import nl.optifit.backendservice.service.MobilityService;
+import nl.optifit.backendservice.service.SessionServiceFixture;
+import nl.optifit.backendservice.utility.SessionCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.zalando.problem.jackson.ProblemModule;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AccountControllerTest {
+
+    private static final String SESSIONS = "/api/v1/account/{accountId}/sessions";
+
+    private SessionRepository sessionRepository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        SessionServiceFixture fixture = SessionServiceFixture.mocked();
+        sessionRepository = fixture.sessionRepository();
+        AccountController accountController = new AccountController(mock(AccountService.class),
+                mock(BiometricsService.class), mock(MobilityService.class), fixture.sessionService());
+
+        JsonMapper objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .addModule(new ProblemModule().withStackTraces(false))
+                .build();
+        mockMvc = MockMvcBuilders.standaloneSetup(accountController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    @Test
+    void malformedCursorIsRejectedWithBadRequest() throws Exception {
+        mockMvc.perform(get(SESSIONS, "account-1").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.detail").value("Invalid cursor 'not-a-cursor'"));
+
+        verify(sessionRepository, never()).findBy(any(Specification.class), any());
+    }
+
+    @Test
+    void emptyCursorSelectsTheKeysetListing() throws Exception {
+        doReturn(List.of()).when(sessionRepository).findBy(any(Specification.class), any());
+
+        mockMvc.perform(get(SESSIONS, "account-1").param("cursor", ""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").isEmpty())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        verify(sessionRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void validCursorSelectsTheKeysetListing() throws Exception {
+        doReturn(List.of()).when(sessionRepository).findBy(any(Specification.class), any());
+        String cursor = new SessionCursor(Instant.parse("2025-03-14T09:30:00Z"), UUID.randomUUID()).encode();
+
+        mockMvc.perform(get(SESSIONS, "account-1").param("cursor", cursor).param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "-1", "101"})
+    void pageSizeOutOfRangeIsRejectedWithBadRequest(String size) throws Exception {
+        mockMvc.perform(get(SESSIONS, "account-1").param("cursor", "").param("size", size))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400));
+
+        verify(sessionRepository, never()).findBy(any(Specification.class), any());
+    }
+
+    @Test
+    void requestWithoutCursorKeepsTheOffsetListing() throws Exception {
+        doReturn(new PageImpl<>(List.of())).when(sessionRepository)
+                .findAll(any(Specification.class), any(Pageable.class));
+
+        mockMvc.perform(get(SESSIONS, "account-1"))
+                .andExpect(status().isOk());
+
+        verify(sessionRepository, never()).findBy(any(Specification.class), any());
+    }
+}
@@ -0,0 +1,89 @@
+package nl.optifit.backendservice.cron;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.optifit.backendservice.concurrency.BulkheadProperties;
+import nl.optifit.backendservice.concurrency.Bulkheads;
+import nl.optifit.backendservice.service.SessionExpiryTimer;
+import nl.optifit.backendservice.service.SessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionExpirySchedulerTest {
+
+    private final UUID first = UUID.randomUUID();
+    private final UUID conflicting = UUID.randomUUID();
+    private final UUID third = UUID.randomUUID();
+
+    private SessionExpiryTimer sessionExpiryTimer;
+    private SessionService sessionService;
+    private SessionExpiryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        sessionExpiryTimer = mock(SessionExpiryTimer.class);
+        sessionService = mock(SessionService.class);
+        Bulkheads bulkheads = new Bulkheads(new BulkheadProperties(), new SimpleMeterRegistry());
+        scheduler = new SessionExpiryScheduler(sessionExpiryTimer, sessionService, bulkheads, 50, Duration.ofSeconds(5), 2);
+
+        when(sessionService.expireSessions(anyList())).thenAnswer(invocation -> {
+            List<UUID> ids = invocation.getArgument(0);
+            if (ids.contains(conflicting)) {
+                throw new ObjectOptimisticLockingFailureException("Leaderboard", conflicting);
+            }
+            return ids.size();
+        });
+    }
+
+    @Test
+    void failedBatchIsExpiredOneByOneAndConflictsAreRescheduled() {
+        when(sessionExpiryTimer.advance(any())).thenReturn(List.of(first, conflicting, third));
+
+        scheduler.run();
+
+        verify(sessionService).expireSessions(List.of(first, conflicting, third));
+        verify(sessionService).expireSessions(List.of(first));
+        verify(sessionService).expireSessions(List.of(third));
+        verify(sessionExpiryTimer).schedule(eq(conflicting), argThat(due -> due.isAfter(ZonedDateTime.now())));
+        verify(sessionExpiryTimer, never()).schedule(eq(first), any());
+        verify(sessionExpiryTimer, never()).schedule(eq(third), any());
+    }
+
+    @Test
+    void sessionIsGivenUpAfterMaxAttempts() {
+        when(sessionExpiryTimer.advance(any())).thenReturn(List.of(conflicting), List.of(conflicting), List.of());
+
+        scheduler.run();
+        scheduler.run();
+        scheduler.run();
+
+        verify(sessionService, times(4)).expireSessions(List.of(conflicting));
+        verify(sessionExpiryTimer, times(1)).schedule(eq(conflicting), any());
+    }
+
+    @Test
+    void successfulBatchIsNotRetried() {
+        when(sessionExpiryTimer.advance(any())).thenReturn(List.of(first, third));
+
+        scheduler.run();
+
+        verify(sessionService).expireSessions(List.of(first, third));
+        verify(sessionService, never()).expireSessions(List.of(first));
+        verify(sessionExpiryTimer, never()).schedule(any(), any());
+    }
+}
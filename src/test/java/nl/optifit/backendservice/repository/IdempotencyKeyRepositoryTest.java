@@ -0,0 +1,52 @@
+package nl.optifit.backendservice.repository;
+
+import nl.optifit.backendservice.model.IdempotencyKey;
+import nl.optifit.backendservice.model.IdempotencyKeyId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@PostgresRepositoryTest
+class IdempotencyKeyRepositoryTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Test
+    void replayedKeyIsNotClaimedAgain() {
+        assertThat(idempotencyKeyRepository.claim("account-1", "key-1", "finish:1", NOW)).isEqualTo(1);
+        idempotencyKeyRepository.recordOutcome("account-1", "key-1", true);
+
+        assertThat(idempotencyKeyRepository.claim("account-1", "key-1", "finish:1", NOW.plusSeconds(1))).isZero();
+
+        entityManager.clear();
+        IdempotencyKey key = idempotencyKeyRepository.findById(new IdempotencyKeyId("account-1", "key-1")).orElseThrow();
+        assertThat(key.getRequest()).isEqualTo("finish:1");
+        assertThat(key.getApplied()).isTrue();
+        assertThat(key.getCreatedAt()).isEqualTo(NOW);
+    }
+
+    @Test
+    void sameKeyOfAnotherAccountIsClaimedSeparately() {
+        assertThat(idempotencyKeyRepository.claim("account-1", "key-1", "finish:1", NOW)).isEqualTo(1);
+        assertThat(idempotencyKeyRepository.claim("account-2", "key-1", "finish:2", NOW)).isEqualTo(1);
+    }
+
+    @Test
+    void keysOlderThanTheCutoffAreDeleted() {
+        idempotencyKeyRepository.claim("account-1", "old", "finish:1", NOW.minus(2, ChronoUnit.DAYS));
+        idempotencyKeyRepository.claim("account-1", "new", "finish:2", NOW);
+
+        assertThat(idempotencyKeyRepository.deleteCreatedBefore(NOW.minus(1, ChronoUnit.DAYS))).isEqualTo(1);
+        assertThat(idempotencyKeyRepository.findAll()).extracting(key -> key.getId().getKey()).containsExactly("new");
+    }
+}
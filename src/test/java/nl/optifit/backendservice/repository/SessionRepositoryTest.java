@@ -0,0 +1,82 @@
+package nl.optifit.backendservice.repository;
+
+import nl.optifit.backendservice.model.Account;
+import nl.optifit.backendservice.model.ExerciseType;
+import nl.optifit.backendservice.model.Session;
+import nl.optifit.backendservice.model.SessionStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@PostgresRepositoryTest
+class SessionRepositoryTest {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.now(ZoneId.of("Europe/Amsterdam")).truncatedTo(ChronoUnit.SECONDS);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        account = entityManager.persist(Account.builder().id("account-1").build());
+        entityManager.persist(Account.builder().id("account-2").build());
+    }
+
+    @Test
+    void sessionIsFinishedOnce() {
+        Session session = persist(NOW.minusMinutes(10));
+
+        Optional<Session> first = sessionRepository.finishIfNew(session.getId(), "account-1", NOW.minusHours(1), NOW);
+        Optional<Session> second = sessionRepository.finishIfNew(session.getId(), "account-1", NOW.minusHours(1), NOW);
+
+        assertThat(first).hasValueSatisfying(finished -> {
+            assertThat(finished.getSessionStatus()).isEqualTo(SessionStatus.COMPLETED);
+            assertThat(finished.getSessionExecutionTime().toInstant()).isEqualTo(NOW.toInstant());
+            assertThat(finished.getVersion()).isEqualTo(1L);
+        });
+        assertThat(second).isEmpty();
+    }
+
+    @Test
+    void sessionPastTheCutoffIsFinishedAsOverdue() {
+        Session session = persist(NOW.minusHours(2));
+
+        Optional<Session> finished = sessionRepository.finishIfNew(session.getId(), "account-1", NOW.minusHours(1), NOW);
+
+        assertThat(finished).hasValueSatisfying(overdue -> {
+            assertThat(overdue.getSessionStatus()).isEqualTo(SessionStatus.OVERDUE);
+            assertThat(overdue.getSessionExecutionTime()).isNull();
+        });
+    }
+
+    @Test
+    void sessionOfAnotherAccountIsNotFinished() {
+        Session session = persist(NOW.minusMinutes(10));
+
+        assertThat(sessionRepository.finishIfNew(session.getId(), "account-2", NOW.minusHours(1), NOW)).isEmpty();
+        assertThat(sessionRepository.finishIfNew(session.getId(), "account-1", NOW.minusHours(1), NOW)).isPresent();
+    }
+
+    private Session persist(ZonedDateTime sessionStart) {
+        Session session = entityManager.persistAndFlush(Session.builder()
+                .account(account)
+                .sessionStart(sessionStart)
+                .exerciseType(ExerciseType.HIP)
+                .sessionStatus(SessionStatus.NEW)
+                .build());
+        entityManager.clear();
+        return session;
+    }
+}
@@ -0,0 +1,89 @@
+package nl.optifit.backendservice.service;
+
+import jakarta.ws.rs.BadRequestException;
+import nl.optifit.backendservice.model.IdempotencyKey;
+import nl.optifit.backendservice.model.IdempotencyKeyId;
+import nl.optifit.backendservice.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private static final String ACCOUNT_ID = "account-1";
+    private static final String KEY = "3f2504e0-4f89-11d3-9a0c-0305e82c3301";
+    private static final String REQUEST = "PUT session 42";
+
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyKeyRepository = mock(IdempotencyKeyRepository.class);
+        idempotencyService = new IdempotencyService(idempotencyKeyRepository);
+    }
+
+    @Test
+    void newKeyLetsTheRequestRun() {
+        when(idempotencyKeyRepository.claim(eq(ACCOUNT_ID), eq(KEY), eq(REQUEST), any())).thenReturn(1);
+
+        assertThat(idempotencyService.claim(ACCOUNT_ID, KEY, REQUEST)).isEmpty();
+        verify(idempotencyKeyRepository, never()).findById(any());
+    }
+
+    @Test
+    void replayedKeyReturnsTheRecordedOutcome() {
+        claimed(true);
+
+        assertThat(idempotencyService.claim(ACCOUNT_ID, KEY, REQUEST)).contains(true);
+    }
+
+    @Test
+    void replayOfARequestThatChangedNothingReturnsFalse() {
+        claimed(false);
+
+        assertThat(idempotencyService.claim(ACCOUNT_ID, KEY, REQUEST)).contains(false);
+    }
+
+    @Test
+    void replayBeforeTheOutcomeWasRecordedReturnsFalse() {
+        claimed(null);
+
+        assertThat(idempotencyService.claim(ACCOUNT_ID, KEY, REQUEST)).contains(false);
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsABadRequest() {
+        claimed(true);
+
+        assertThatThrownBy(() -> idempotencyService.claim(ACCOUNT_ID, KEY, "PUT session 43"))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining(KEY);
+    }
+
+    @Test
+    void keyThatVanishedWhileClaimingFails() {
+        when(idempotencyKeyRepository.claim(eq(ACCOUNT_ID), eq(KEY), eq(REQUEST), any())).thenReturn(0);
+        when(idempotencyKeyRepository.findById(new IdempotencyKeyId(ACCOUNT_ID, KEY))).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> idempotencyService.claim(ACCOUNT_ID, KEY, REQUEST))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private void claimed(Boolean applied) {
+        when(idempotencyKeyRepository.claim(eq(ACCOUNT_ID), eq(KEY), eq(REQUEST), any())).thenReturn(0);
+        when(idempotencyKeyRepository.findById(new IdempotencyKeyId(ACCOUNT_ID, KEY)))
+                .thenReturn(Optional.of(new IdempotencyKey(new IdempotencyKeyId(ACCOUNT_ID, KEY), REQUEST, applied, Instant.now())));
+    }
+}
@@ -0,0 +1,166 @@
+package nl.optifit.backendservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.ServiceUnavailableException;
+import nl.optifit.backendservice.concurrency.BulkheadProperties;
+import nl.optifit.backendservice.concurrency.Bulkheads;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static nl.optifit.backendservice.service.KeycloakUserDirectoryTest.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeycloakServiceTest {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+
+    private Keycloak keycloak;
+    private UsersResource users;
+    private KeycloakUserDirectory userDirectory;
+    private KeycloakService keycloakService;
+
+    @BeforeEach
+    void setUp() {
+        keycloak = mock(Keycloak.class);
+        RealmResource realm = mock(RealmResource.class);
+        users = mock(UsersResource.class);
+        when(keycloak.realm(any())).thenReturn(realm);
+        when(realm.users()).thenReturn(users);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (keycloakService != null) {
+            keycloakService.close();
+        }
+    }
+
+    @Test
+    void staleUserIsServedRightAwayAndRefreshedInTheBackground() throws InterruptedException {
+        start(Duration.ZERO);
+        userDirectory.put(withEmail("a", "old@example.com"));
+        UserResource userResource = stubUser("a");
+        when(userResource.toRepresentation()).thenReturn(withEmail("a", "new@example.com"));
+
+        assertThat(keycloakService.findUserById("a")).map(UserRepresentation::getEmail).contains("old@example.com");
+
+        awaitRevalidation("a");
+        assertThat(userDirectory.lookup("a").user().getEmail()).isEqualTo("new@example.com");
+    }
+
+    @Test
+    void staleUserIsStillServedWhenTheRefreshFails() throws InterruptedException {
+        start(Duration.ZERO);
+        userDirectory.put(withEmail("a", "old@example.com"));
+        UserResource userResource = stubUser("a");
+        when(userResource.toRepresentation()).thenThrow(new ServiceUnavailableException());
+
+        keycloakService.findUserById("a");
+
+        awaitRevalidation("a");
+        verify(userResource).toRepresentation();
+        assertThat(userDirectory.lookup("a").user().getEmail()).isEqualTo("old@example.com");
+    }
+
+    @Test
+    void staleUserIsEvictedOnceDeleted() throws InterruptedException {
+        start(Duration.ZERO);
+        userDirectory.put(user("a"));
+        when(stubUser("a").toRepresentation()).thenThrow(new NotFoundException());
+
+        assertThat(keycloakService.findUserById("a")).isPresent();
+
+        awaitRevalidation("a");
+        assertThat(userDirectory.lookup("a")).isNull();
+    }
+
+    @Test
+    void usersThatFailToLoadAreLeftOut() {
+        start(HOUR);
+        userDirectory.setRealmSize(1_000);
+        when(stubUser("a").toRepresentation()).thenReturn(user("a"));
+        when(stubUser("b").toRepresentation()).thenThrow(new ServiceUnavailableException());
+
+        assertThat(keycloakService.findUsersByIds(List.of("a", "b"))).containsOnlyKeys("a");
+        assertThat(keycloakService.findUserById("b")).isEmpty();
+    }
+
+    @Test
+    void realmIsCountedOnceForBatchLookups() {
+        start(HOUR);
+        when(users.count()).thenReturn(1_000);
+        List.of("a", "b", "c", "d").forEach(id -> when(stubUser(id).toRepresentation()).thenReturn(user(id)));
+
+        keycloakService.findUsersByIds(List.of("a", "b"));
+        keycloakService.findUsersByIds(List.of("c", "d"));
+
+        verify(users, times(1)).count();
+    }
+
+    @Test
+    void listingTheRealmRemembersItsSize() {
+        start(HOUR);
+        when(users.list(0, 500)).thenReturn(List.of(user("a"), user("b")));
+
+        keycloakService.listAllUsers();
+
+        assertThat(userDirectory.realmSize()).hasValue(2);
+        assertThat(userDirectory.lookup("a")).isNotNull();
+        verify(users, never()).count();
+    }
+
+    // The loader memo is off, so it does not hide the refreshes
+    private void start(Duration ttl) {
+        userDirectory = new KeycloakUserDirectory(new SimpleMeterRegistry(), 100, ttl, HOUR);
+        Bulkheads bulkheads = new Bulkheads(new BulkheadProperties(), new SimpleMeterRegistry());
+        keycloakService = new KeycloakService(keycloak, bulkheads, userDirectory, Duration.ofMillis(5), 100, Duration.ZERO);
+    }
+
+    private UserResource stubUser(String id) {
+        UserResource userResource = mock(UserResource.class);
+        when(users.get(id)).thenReturn(userResource);
+        return userResource;
+    }
+
+    // The revalidation has finished once its claim is released
+    private void awaitRevalidation(String id) throws InterruptedException {
+        await(() -> {
+            if (userDirectory.startRevalidation(id)) {
+                userDirectory.finishRevalidation(id);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition met within 5 seconds").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static UserRepresentation withEmail(String id, String email) {
+        UserRepresentation user = user(id);
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -0,0 +1,149 @@
+package nl.optifit.backendservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeycloakUserDirectoryTest {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void freshEntryIsServedAsAHit() {
+        KeycloakUserDirectory directory = directory(10, HOUR, HOUR);
+        directory.put(user("a"));
+
+        KeycloakUserDirectory.Cached cached = directory.lookup("a");
+
+        assertThat(cached.user().getEmail()).isEqualTo("a@example.com");
+        assertThat(cached.stale()).isFalse();
+        assertThat(lookups("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void entryPastTheTtlIsServedStale() throws InterruptedException {
+        KeycloakUserDirectory directory = directory(10, Duration.ofMillis(1), HOUR);
+        directory.put(user("a"));
+        Thread.sleep(5);
+
+        KeycloakUserDirectory.Cached cached = directory.lookup("a");
+
+        assertThat(cached.user().getId()).isEqualTo("a");
+        assertThat(cached.stale()).isTrue();
+        assertThat(lookups("stale")).isEqualTo(1);
+    }
+
+    @Test
+    void entryPastTheMaximumStalenessIsDropped() throws InterruptedException {
+        KeycloakUserDirectory directory = directory(10, Duration.ofMillis(1), Duration.ofMillis(1));
+        directory.put(user("a"));
+        Thread.sleep(5);
+
+        assertThat(directory.lookup("a")).isNull();
+        assertThat(lookups("miss")).isEqualTo(1);
+        assertThat(meterRegistry.get("keycloak.directory.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void refreshedEntryIsFreshAgain() throws InterruptedException {
+        KeycloakUserDirectory directory = directory(10, Duration.ofMillis(20), HOUR);
+        directory.put(user("a"));
+        Thread.sleep(30);
+        assertThat(directory.lookup("a").stale()).isTrue();
+
+        directory.put(user("a"));
+
+        assertThat(directory.lookup("a").stale()).isFalse();
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsDroppedWhenFull() {
+        KeycloakUserDirectory directory = directory(2, HOUR, HOUR);
+        directory.putAll(List.of(user("a"), user("b")));
+        directory.lookup("a");
+
+        directory.put(user("c"));
+
+        assertThat(directory.lookup("a")).isNotNull();
+        assertThat(directory.lookup("b")).isNull();
+        assertThat(directory.lookup("c")).isNotNull();
+    }
+
+    @Test
+    void evictedEntryIsAMiss() {
+        KeycloakUserDirectory directory = directory(10, HOUR, HOUR);
+        directory.put(user("a"));
+
+        directory.evict("a");
+
+        assertThat(directory.lookup("a")).isNull();
+    }
+
+    @Test
+    void onlyTheReadFieldsAreKept() {
+        KeycloakUserDirectory directory = directory(10, HOUR, HOUR);
+        UserRepresentation user = user("a");
+        user.setAttributes(Map.of("dob", List.of("1990-01-01"), "sex", List.of("F"), "phone", List.of("0612345678")));
+        user.setEnabled(true);
+        directory.put(user);
+
+        UserRepresentation cached = directory.lookup("a").user();
+
+        assertThat(cached.getAttributes()).containsOnlyKeys("dob", "sex");
+        assertThat(cached.isEnabled()).isNull();
+    }
+
+    @Test
+    void revalidationIsClaimedOnce() {
+        KeycloakUserDirectory directory = directory(10, HOUR, HOUR);
+
+        assertThat(directory.startRevalidation("a")).isTrue();
+        assertThat(directory.startRevalidation("a")).isFalse();
+
+        directory.finishRevalidation("a");
+        assertThat(directory.startRevalidation("a")).isTrue();
+    }
+
+    @Test
+    void realmSizeIsRememberedForTheTtl() throws InterruptedException {
+        KeycloakUserDirectory directory = directory(10, Duration.ofMillis(20), HOUR);
+        assertThat(directory.realmSize()).isEmpty();
+
+        directory.setRealmSize(42);
+        assertThat(directory.realmSize()).hasValue(42);
+
+        Thread.sleep(30);
+        assertThat(directory.realmSize()).isEmpty();
+    }
+
+    private KeycloakUserDirectory directory(int maxEntries, Duration ttl, Duration maxStale) {
+        return new KeycloakUserDirectory(meterRegistry, maxEntries, ttl, maxStale);
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("keycloak.directory.lookups").tag("result", result).counter().count();
+    }
+
+    static UserRepresentation user(String id) {
+        UserRepresentation user = new UserRepresentation();
+        user.setId(id);
+        user.setUsername(id);
+        user.setEmail(id + "@example.com");
+        return user;
+    }
+}
@@ -0,0 +1,159 @@
+package nl.optifit.backendservice.service;
+
+import nl.optifit.backendservice.dto.LeaderboardDto;
+import nl.optifit.backendservice.dto.LeaderboardWindowDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static nl.optifit.backendservice.model.LeaderboardSortField.COMPLETION_RATE;
+import static nl.optifit.backendservice.model.LeaderboardSortField.SCORE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaderboardRankingIndexTest {
+
+    // Same order as the index uses for SCORE: score first, account id as tie-break
+    private static final Comparator<Map.Entry<String, LeaderboardDto>> BY_SCORE =
+            Comparator.<Map.Entry<String, LeaderboardDto>>comparingInt(entry -> entry.getValue().score())
+                    .thenComparing(Map.Entry::getKey);
+
+    private final LeaderboardRankingIndex index = new LeaderboardRankingIndex();
+    private Map<String, LeaderboardDto> leaderboards;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(7);
+        leaderboards = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            // Scores from a small range, so many accounts share a score
+            leaderboards.put("account-%03d".formatted(i), leaderboard("User " + i, random.nextInt(10), random.nextDouble()));
+        }
+        index.loadIfAbsent(() -> leaderboards);
+    }
+
+    @Test
+    void pagesMatchSortedListInBothDirections() {
+        List<String> ascending = sortedAccountIds(leaderboards);
+        List<String> descending = ascending.reversed();
+
+        for (int page = 0; page < 21; page++) {
+            assertThat(index.page(SCORE, false, page, 10).getContent()).containsExactlyElementsOf(slice(ascending, page * 10, 10));
+            assertThat(index.page(SCORE, true, page, 10).getContent()).containsExactlyElementsOf(slice(descending, page * 10, 10));
+        }
+        assertThat(index.page(SCORE, true, 0, 10).getTotalElements()).isEqualTo(200);
+    }
+
+    @Test
+    void rankOfBreaksTiesByAccountId() {
+        List<String> ascending = sortedAccountIds(leaderboards);
+        for (int position = 0; position < ascending.size(); position++) {
+            String accountId = ascending.get(position);
+            assertThat(index.rankOf(accountId, SCORE, false)).contains(position + 1);
+            assertThat(index.rankOf(accountId, SCORE, true)).contains(ascending.size() - position);
+        }
+        assertThat(index.rankOf("unknown", SCORE, true)).isEmpty();
+    }
+
+    @Test
+    void descendingWindowIsClippedAtTheTop() {
+        List<String> descending = sortedAccountIds(leaderboards).reversed();
+
+        LeaderboardWindowDto window = index.window(descending.get(1), SCORE, true, 3).orElseThrow();
+
+        assertThat(window.rank()).isEqualTo(2);
+        assertThat(window.firstRank()).isEqualTo(1);
+        assertThat(window.totalElements()).isEqualTo(200);
+        assertThat(window.content()).containsExactlyElementsOf(slice(descending, 0, 5));
+    }
+
+    @Test
+    void descendingWindowIsClippedAtTheBottom() {
+        List<String> descending = sortedAccountIds(leaderboards).reversed();
+
+        LeaderboardWindowDto window = index.window(descending.get(199), SCORE, true, 3).orElseThrow();
+
+        assertThat(window.rank()).isEqualTo(200);
+        assertThat(window.firstRank()).isEqualTo(197);
+        assertThat(window.content()).containsExactlyElementsOf(slice(descending, 196, 4));
+    }
+
+    @Test
+    void windowInTheMiddleHasNeighboursOnBothSides() {
+        List<String> ascending = sortedAccountIds(leaderboards);
+
+        LeaderboardWindowDto window = index.window(ascending.get(100), SCORE, false, 2).orElseThrow();
+
+        assertThat(window.rank()).isEqualTo(101);
+        assertThat(window.firstRank()).isEqualTo(99);
+        assertThat(window.content()).containsExactlyElementsOf(slice(ascending, 98, 5));
+    }
+
+    @Test
+    void upsertsAndDeletesKeepOrder() {
+        Random random = new Random(11);
+        for (int i = 0; i < 300; i++) {
+            String accountId = "account-%03d".formatted(random.nextInt(250));
+            if (random.nextInt(4) == 0) {
+                index.delete(accountId);
+                leaderboards.remove(accountId);
+            } else {
+                LeaderboardDto leaderboard = leaderboard("User", random.nextInt(10), random.nextDouble());
+                index.upsert(accountId, leaderboard);
+                leaderboards.put(accountId, leaderboard);
+            }
+        }
+
+        List<String> ascending = sortedAccountIds(leaderboards);
+        assertThat(index.page(SCORE, false, 0, 500).getContent()).containsExactlyElementsOf(slice(ascending, 0, 500));
+        assertThat(index.page(SCORE, false, 0, 500).getTotalElements()).isEqualTo(leaderboards.size());
+    }
+
+    @Test
+    void applyResetZeroesScoresAndMovesWinnerFlag() {
+        index.applyReset("account-042");
+
+        List<LeaderboardDto> all = index.page(SCORE, false, 0, 500).getContent();
+        assertThat(all).hasSize(200).allSatisfy(leaderboard -> assertThat(leaderboard.score()).isZero());
+        assertThat(all.stream().filter(LeaderboardDto::recentWinner).toList())
+                .containsExactly(index.find("account-042").orElseThrow());
+
+        // With all scores equal the order is the account id order
+        assertThat(index.rankOf("account-000", SCORE, false)).contains(1);
+        assertThat(index.rankOf("account-199", SCORE, true)).contains(1);
+
+        // Fields not touched by the reset keep their order
+        assertThat(index.page(COMPLETION_RATE, true, 0, 1).getContent().getFirst().completionRate())
+                .isEqualTo(leaderboards.values().stream().mapToDouble(LeaderboardDto::completionRate).max().orElseThrow());
+    }
+
+    @Test
+    void writesBeforeLoadAreIgnored() {
+        LeaderboardRankingIndex unloaded = new LeaderboardRankingIndex();
+        unloaded.upsert("account-000", leaderboard("User", 1, 0));
+
+        assertThat(unloaded.isLoaded()).isFalse();
+        assertThat(unloaded.find("account-000")).isEmpty();
+    }
+
+    private List<String> sortedAccountIds(Map<String, LeaderboardDto> leaderboards) {
+        return leaderboards.entrySet().stream().sorted(BY_SCORE).map(Map.Entry::getKey).toList();
+    }
+
+    private List<LeaderboardDto> slice(List<String> accountIds, int from, int count) {
+        List<LeaderboardDto> slice = new ArrayList<>();
+        for (int i = from; i < Math.min(accountIds.size(), from + count); i++) {
+            slice.add(leaderboards.get(accountIds.get(i)));
+        }
+        return slice;
+    }
+
+    private static LeaderboardDto leaderboard(String fullName, int score, double completionRate) {
+        return new LeaderboardDto(fullName, score, completionRate, 0, 0, false);
+    }
+}
@@ -0,0 +1,102 @@
+package nl.optifit.backendservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaderboardResponseCacheTest {
+
+    private static final String STATE = "3:17:2025-01-06T10:00";
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void replicasWithTheSameStateHandOutTheSameEtag() {
+        LeaderboardResponseCache replica = cache(Duration.ofMinutes(1));
+        LeaderboardResponseCache otherReplica = cache(Duration.ofMinutes(1));
+
+        replica.update(STATE);
+        otherReplica.update(STATE);
+
+        assertThat(replica.etag(replica.version())).isEqualTo(otherReplica.etag(otherReplica.version()));
+        assertThat(otherReplica.isNotModified(replica.etag(replica.version()), otherReplica.version())).isTrue();
+    }
+
+    @Test
+    void unchangedStateKeepsTheCachedResponses() {
+        LeaderboardResponseCache cache = cache(Duration.ofMinutes(1));
+        assertThat(cache.update(STATE)).isTrue();
+        String version = cache.version();
+        load(cache);
+
+        assertThat(cache.update(STATE)).isFalse();
+
+        assertThat(cache.version()).isEqualTo(version);
+        load(cache);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void changedStateDropsTheCachedResponses() {
+        LeaderboardResponseCache cache = cache(Duration.ofMinutes(1));
+        cache.update(STATE);
+        String version = cache.version();
+        load(cache);
+
+        assertThat(cache.update("3:18:2025-01-06T10:00")).isTrue();
+
+        assertThat(cache.version()).isNotEqualTo(version);
+        assertThat(cache.isNotModified(cache.etag(version), cache.version())).isFalse();
+        load(cache);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void localWriteDropsTheCachedResponses() {
+        LeaderboardResponseCache cache = cache(Duration.ofMinutes(1));
+        cache.update(STATE);
+        load(cache);
+
+        cache.invalidate();
+
+        load(cache);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void responseComputedDuringAnInvalidationIsNotCached() {
+        LeaderboardResponseCache cache = cache(Duration.ofMinutes(1));
+        cache.update(STATE);
+
+        cache.get(cache.version(), "page", () -> {
+            cache.invalidate();
+            return "stale";
+        });
+
+        assertThat(cache.get(cache.version(), "page", () -> "fresh")).isEqualTo("fresh");
+    }
+
+    @Test
+    void stateIsCheckedOncePerInterval() throws InterruptedException {
+        LeaderboardResponseCache cache = cache(Duration.ofMillis(20));
+        assertThat(cache.isCheckDue()).isTrue();
+
+        cache.update(STATE);
+        assertThat(cache.isCheckDue()).isFalse();
+
+        Thread.sleep(30);
+        assertThat(cache.isCheckDue()).isTrue();
+    }
+
+    private LeaderboardResponseCache cache(Duration checkInterval) {
+        return new LeaderboardResponseCache(new SimpleMeterRegistry(), 16, checkInterval);
+    }
+
+    private void load(LeaderboardResponseCache cache) {
+        cache.get(cache.version(), "page", () -> "page " + loads.incrementAndGet());
+    }
+}
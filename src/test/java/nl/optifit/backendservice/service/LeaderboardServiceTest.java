@@ -0,0 +1,46 @@
+package nl.optifit.backendservice.service;
+
+import nl.optifit.backendservice.model.Session;
+import nl.optifit.backendservice.model.SessionStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaderboardServiceTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2025, 1, 6, 10, 0, 0, 0, ZoneId.of("Europe/Amsterdam"));
+
+    @Test
+    void sessionCompletedRightAwayScoresFull() {
+        assertThat(LeaderboardService.calculateScore(10, completed(0))).isEqualTo(110);
+    }
+
+    @Test
+    void lateCompletionScoresTheFloor() {
+        assertThat(LeaderboardService.calculateScore(10, completed(59))).isEqualTo(35);
+    }
+
+    @Test
+    void overdueSessionScoresNothing() {
+        Session overdue = Session.builder().sessionStart(START).sessionStatus(SessionStatus.OVERDUE).build();
+
+        assertThat(LeaderboardService.calculateScore(10, overdue)).isEqualTo(10);
+        assertThat(LeaderboardService.calculateScore(null, overdue)).isZero();
+    }
+
+    @Test
+    void firstSessionStartsFromZero() {
+        assertThat(LeaderboardService.calculateScore(null, completed(30))).isEqualTo(50);
+    }
+
+    private static Session completed(int afterMinutes) {
+        return Session.builder()
+                .sessionStart(START)
+                .sessionExecutionTime(START.plusMinutes(afterMinutes))
+                .sessionStatus(SessionStatus.COMPLETED)
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package nl.optifit.backendservice.service;
+
+import nl.optifit.backendservice.repository.MobilityRepository;
+import nl.optifit.backendservice.repository.SessionRepository;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * The dependencies of a {@link SessionService} under test, mocked unless given, so tests stub and verify them by name
+ * instead of wiring the service themselves.
+ */
+public record SessionServiceFixture(LeaderboardService leaderboardService,
+                                    SessionRepository sessionRepository,
+                                    ExerciseVideoCatalog exerciseVideoCatalog,
+                                    MobilityRepository mobilityRepository,
+                                    NotificationOutboxService notificationOutboxService,
+                                    SessionExpiryTimer sessionExpiryTimer,
+                                    SessionPartitionService sessionPartitionService,
+                                    IdempotencyService idempotencyService) {
+
+    public static SessionServiceFixture mocked() {
+        return withRepository(mock(SessionRepository.class));
+    }
+
+    public static SessionServiceFixture withRepository(SessionRepository sessionRepository) {
+        return new SessionServiceFixture(mock(LeaderboardService.class), sessionRepository, mock(ExerciseVideoCatalog.class),
+                mock(MobilityRepository.class), mock(NotificationOutboxService.class), mock(SessionExpiryTimer.class),
+                mock(SessionPartitionService.class), mock(IdempotencyService.class));
+    }
+
+    public SessionService sessionService() {
+        return new SessionService(leaderboardService, sessionRepository, exerciseVideoCatalog, mobilityRepository,
+                notificationOutboxService, sessionExpiryTimer, sessionPartitionService, idempotencyService);
+    }
+}
@@ -0,0 +1,126 @@
+package nl.optifit.backendservice.service;
+
+import nl.optifit.backendservice.dto.KeysetPageDto;
+import nl.optifit.backendservice.dto.SessionDto;
+import nl.optifit.backendservice.model.Account;
+import nl.optifit.backendservice.model.ExerciseType;
+import nl.optifit.backendservice.model.Session;
+import nl.optifit.backendservice.model.SessionStatus;
+import nl.optifit.backendservice.repository.SessionRepository;
+import nl.optifit.backendservice.utility.SessionCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class SessionServiceKeysetTest {
+
+    // Matches the listing order: newest first, then id descending. The string form of a UUID sorts like its bytes,
+    // which is how the database compares them.
+    private static final Comparator<Session> NEWEST_FIRST = Comparator.comparing(Session::getSessionStart)
+            .thenComparing(session -> session.getId().toString())
+            .reversed();
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    private SessionService sessionService;
+    private List<Session> sessions;
+
+    @BeforeEach
+    void setUp() {
+        sessionService = SessionServiceFixture.withRepository(sessionRepository).sessionService();
+
+        Account account = entityManager.persist(Account.builder().id("account-1").build());
+        Account otherAccount = entityManager.persist(Account.builder().id("account-2").build());
+        ZonedDateTime slot = ZonedDateTime.now(ZoneId.of("Europe/Amsterdam")).minusDays(1).truncatedTo(ChronoUnit.MINUTES);
+
+        // Every slot creates the sessions of all accounts at the same start, so ties on session start are the norm
+        sessions = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            sessions.add(persist(account, slot, i));
+        }
+        sessions.add(persist(account, slot.minusHours(3), 7));
+        sessions.add(persist(account, slot.plusHours(2), 8));
+        persist(otherAccount, slot, 9);
+        entityManager.flush();
+        entityManager.clear();
+        sessions.sort(NEWEST_FIRST);
+    }
+
+    @Test
+    void pagesSplitSessionsWithEqualStartWithoutGapsOrDuplicates() {
+        List<Instant> listed = new ArrayList<>();
+        List<String> cursors = new ArrayList<>();
+
+        String cursor = "";
+        do {
+            KeysetPageDto<SessionDto> page = sessionService.findAllForAccount("account-1", null, null, cursor, 2, false);
+            assertThat(page.content()).hasSizeLessThanOrEqualTo(2);
+            listed.addAll(markers(page.content()));
+            cursor = page.nextCursor();
+            cursors.add(cursor);
+        } while (cursor != null);
+
+        assertThat(listed).containsExactlyElementsOf(markersOf(sessions));
+        // Each cursor points at the last session of its page, most of them inside the run of equal starts
+        for (int page = 0; page < cursors.size() - 1; page++) {
+            Session last = sessions.get(page * 2 + 1);
+            assertThat(SessionCursor.decode(cursors.get(page))).isEqualTo(new SessionCursor(last.getSessionStart().toInstant(), last.getId()));
+        }
+        assertThat(cursors.getLast()).isNull();
+    }
+
+    @Test
+    void pageEndingOnTheLastSessionHasNoNextCursor() {
+        KeysetPageDto<SessionDto> page = sessionService.findAllForAccount("account-1", null, null, "", sessions.size(), true);
+
+        assertThat(page.content()).hasSize(sessions.size());
+        assertThat(page.nextCursor()).isNull();
+        assertThat(page.totalElements()).isEqualTo(sessions.size());
+    }
+
+    @Test
+    void cursorInsideATieContinuesWithTheSmallerIds() {
+        Session fromTie = sessions.get(3);
+
+        KeysetPageDto<SessionDto> page = sessionService.findAllForAccount("account-1", null, null,
+                new SessionCursor(fromTie.getSessionStart().toInstant(), fromTie.getId()).encode(), 3, false);
+
+        assertThat(markers(page.content())).containsExactlyElementsOf(markersOf(sessions.subList(4, 7)));
+        assertThat(page.totalElements()).isNull();
+    }
+
+    private static List<Instant> markers(List<SessionDto> sessions) {
+        return sessions.stream().map(session -> session.sessionExecutionTime().toInstant()).toList();
+    }
+
+    private static List<Instant> markersOf(List<Session> sessions) {
+        return sessions.stream().map(session -> session.getSessionExecutionTime().toInstant()).toList();
+    }
+
+    private Session persist(Account account, ZonedDateTime sessionStart, int marker) {
+        return entityManager.persist(Session.builder()
+                .account(account)
+                .sessionStart(sessionStart)
+                // Unique per session, so the listed DTOs can be told apart
+                .sessionExecutionTime(sessionStart.plusSeconds(marker))
+                .exerciseType(ExerciseType.HIP)
+                .sessionStatus(SessionStatus.NEW)
+                .build());
+    }
+}
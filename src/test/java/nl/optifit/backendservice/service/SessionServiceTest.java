@@ -0,0 +1,203 @@
+package nl.optifit.backendservice.service;
+
+import jakarta.ws.rs.NotFoundException;
+import nl.optifit.backendservice.model.Account;
+import nl.optifit.backendservice.model.ExerciseType;
+import nl.optifit.backendservice.model.Mobility;
+import nl.optifit.backendservice.model.Session;
+import nl.optifit.backendservice.model.SessionStatus;
+import nl.optifit.backendservice.repository.MobilityRepository;
+import nl.optifit.backendservice.repository.SessionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionServiceTest {
+
+    private static final String ACCOUNT_ID = "account-1";
+    private static final String KEY = "3f2504e0-4f89-11d3-9a0c-0305e82c3301";
+
+    private final UUID sessionId = UUID.randomUUID();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private LeaderboardService leaderboardService;
+    private SessionRepository sessionRepository;
+    private IdempotencyService idempotencyService;
+    private MobilityRepository mobilityRepository;
+    private SessionExpiryTimer sessionExpiryTimer;
+    private SessionService sessionService;
+
+    @BeforeEach
+    void setUp() {
+        SessionServiceFixture fixture = SessionServiceFixture.mocked();
+        leaderboardService = fixture.leaderboardService();
+        sessionRepository = fixture.sessionRepository();
+        idempotencyService = fixture.idempotencyService();
+        mobilityRepository = fixture.mobilityRepository();
+        sessionExpiryTimer = fixture.sessionExpiryTimer();
+        sessionService = fixture.sessionService();
+
+        // Like the conditional UPDATE, only the first call finds the session still NEW
+        AtomicBoolean isNew = new AtomicBoolean(true);
+        when(sessionRepository.finishIfNew(eq(sessionId), eq(ACCOUNT_ID), any(), any())).thenAnswer(invocation ->
+                isNew.compareAndSet(true, false) ? Optional.of(finished()) : Optional.empty());
+        when(sessionRepository.existsByIdAndAccountId(sessionId, ACCOUNT_ID)).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void firstRequestFinishesTheSessionAndRecordsTheOutcome() {
+        when(idempotencyService.claim(ACCOUNT_ID, KEY, "PUT session " + sessionId)).thenReturn(Optional.empty());
+
+        assertThat(sessionService.updateSessionForAccount(ACCOUNT_ID, sessionId.toString(), KEY)).isTrue();
+
+        verify(leaderboardService).updateLeaderboard(any());
+        verify(idempotencyService).recordOutcome(ACCOUNT_ID, KEY, true);
+    }
+
+    @Test
+    void replayedKeyReturnsTheRecordedOutcomeWithoutTouchingTheSession() {
+        when(idempotencyService.claim(ACCOUNT_ID, KEY, "PUT session " + sessionId)).thenReturn(Optional.of(true));
+
+        assertThat(sessionService.updateSessionForAccount(ACCOUNT_ID, sessionId.toString(), KEY)).isTrue();
+
+        verify(sessionRepository, never()).finishIfNew(any(), any(), any(), any());
+        verify(leaderboardService, never()).updateLeaderboard(any());
+        verify(idempotencyService, never()).recordOutcome(anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    void requestWithoutKeySkipsIdempotency() {
+        assertThat(sessionService.updateSessionForAccount(ACCOUNT_ID, sessionId.toString(), null)).isTrue();
+        assertThat(sessionService.updateSessionForAccount(ACCOUNT_ID, sessionId.toString(), " ")).isFalse();
+
+        verify(idempotencyService, never()).claim(any(), any(), any());
+        verify(leaderboardService, times(1)).updateLeaderboard(any());
+    }
+
+    @Test
+    void concurrentDuplicatePutsUpdateTheLeaderboardOnce() throws Exception {
+        List<Boolean> applied = race(() -> sessionService.updateSessionForAccount(ACCOUNT_ID, sessionId.toString(), null));
+
+        assertThat(applied).containsExactlyInAnyOrder(true, false);
+        verify(sessionRepository, times(2)).finishIfNew(eq(sessionId), eq(ACCOUNT_ID), any(), any());
+        verify(leaderboardService, times(1)).updateLeaderboard(any());
+    }
+
+    @Test
+    void concurrentPutsWithTheSameKeyFinishTheSessionOnce() throws Exception {
+        // The unique key lets one claim through; the other replays whatever has been recorded so far
+        Map<String, Boolean> outcomes = new ConcurrentHashMap<>();
+        AtomicBoolean claimed = new AtomicBoolean();
+        when(idempotencyService.claim(ACCOUNT_ID, KEY, "PUT session " + sessionId)).thenAnswer(invocation ->
+                claimed.compareAndSet(false, true) ? Optional.empty() : Optional.of(outcomes.getOrDefault(KEY, false)));
+        doAnswer(invocation -> outcomes.put(KEY, invocation.getArgument(2)))
+                .when(idempotencyService).recordOutcome(eq(ACCOUNT_ID), eq(KEY), anyBoolean());
+
+        race(() -> sessionService.updateSessionForAccount(ACCOUNT_ID, sessionId.toString(), KEY));
+
+        verify(sessionRepository, times(1)).finishIfNew(eq(sessionId), eq(ACCOUNT_ID), any(), any());
+        verify(leaderboardService, times(1)).updateLeaderboard(any());
+        verify(idempotencyService, times(1)).recordOutcome(ACCOUNT_ID, KEY, true);
+    }
+
+    @Test
+    void unknownSessionIsNotFoundAndRecordsNoOutcome() {
+        UUID unknown = UUID.randomUUID();
+        when(idempotencyService.claim(ACCOUNT_ID, KEY, "PUT session " + unknown)).thenReturn(Optional.empty());
+        when(sessionRepository.finishIfNew(eq(unknown), eq(ACCOUNT_ID), any(), any())).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> sessionService.updateSessionForAccount(ACCOUNT_ID, unknown.toString(), KEY))
+                .isInstanceOf(NotFoundException.class);
+        verify(idempotencyService, never()).recordOutcome(anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    void expiryTimersAreArmedOnceTheSlotCommits() {
+        ZonedDateTime expiresAt = stubSlot();
+
+        List<TransactionSynchronization> synchronizations = createSessionsInTransaction();
+        verify(sessionExpiryTimer, never()).schedule(any(), any());
+
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        verify(sessionExpiryTimer).schedule(sessionId, expiresAt);
+    }
+
+    @Test
+    void rolledBackSlotArmsNoExpiryTimers() {
+        stubSlot();
+
+        createSessionsInTransaction().forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(sessionExpiryTimer, never()).schedule(any(), any());
+    }
+
+    private ZonedDateTime stubSlot() {
+        ZonedDateTime expiresAt = ZonedDateTime.now(ZoneId.of(SessionService.TIMEZONE_EUROPE_AMSTERDAM)).plusHours(1);
+        Account account = Account.builder().id(ACCOUNT_ID).build();
+        when(mobilityRepository.findLatestForAccountsInTimezoneShard(SessionService.TIMEZONE_EUROPE_AMSTERDAM, 0, 1))
+                .thenReturn(List.of(Mobility.builder().account(account).build()));
+        when(sessionRepository.saveAll(any())).thenReturn(List.of(Session.builder().id(sessionId).expiresAt(expiresAt).build()));
+        return expiresAt;
+    }
+
+    // Stands in for the transaction manager, which hands the registered synchronizations the outcome
+    private List<TransactionSynchronization> createSessionsInTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            sessionService.createSessions(SessionService.TIMEZONE_EUROPE_AMSTERDAM, ExerciseType.HIP, 0, 1);
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private List<Boolean> race(Callable<Boolean> request) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<Boolean> afterStart = () -> {
+            start.await();
+            return request.call();
+        };
+        Future<Boolean> first = executor.submit(afterStart);
+        Future<Boolean> second = executor.submit(afterStart);
+        start.countDown();
+        return List.of(first.get(), second.get());
+    }
+
+    private Session finished() {
+        return Session.builder().id(sessionId).sessionStatus(SessionStatus.COMPLETED).build();
+    }
+}
@@ -0,0 +1,175 @@
+package nl.optifit.backendservice.utility;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchLoaderTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(50);
+    private static final Duration MEMO_TTL = Duration.ofMinutes(1);
+
+    private final List<Set<String>> batches = new CopyOnWriteArrayList<>();
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+    private BatchLoader<String, String> loader;
+
+    @AfterEach
+    void tearDown() {
+        if (loader != null) {
+            loader.close();
+        }
+    }
+
+    @Test
+    void keysRequestedWithinTheWindowShareOneBatch() throws Exception {
+        loader = loader(Duration.ofMillis(500), 100, MEMO_TTL, this::upperCase);
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<Optional<String>> first = executor.submit(() -> {
+                start.await();
+                return loader.load("a");
+            });
+            Future<Optional<String>> second = executor.submit(() -> {
+                start.await();
+                return loader.load("b");
+            });
+            start.countDown();
+
+            assertThat(first.get()).contains("A");
+            assertThat(second.get()).contains("B");
+        }
+        assertThat(batches).containsExactly(Set.of("a", "b"));
+    }
+
+    @Test
+    void fullBatchIsDispatchedWithoutWaitingForTheWindow() {
+        loader = loader(Duration.ofMinutes(1), 2, MEMO_TTL, this::upperCase);
+
+        Map<String, Optional<String>> results = loader.loadAll(List.of("a", "b"));
+
+        assertThat(results).containsEntry("a", Optional.of("A")).containsEntry("b", Optional.of("B"));
+        assertThat(batches).containsExactly(Set.of("a", "b"));
+    }
+
+    @Test
+    void largeLoadIsSplitIntoBatchesOfTheMaximumSize() {
+        loader = loader(WINDOW, 2, MEMO_TTL, this::upperCase);
+
+        assertThat(loader.loadAll(List.of("a", "b", "c", "a"))).containsOnlyKeys("a", "b", "c");
+        assertThat(batches).containsExactly(Set.of("a", "b"), Set.of("c"));
+    }
+
+    @Test
+    void memoizedKeysAreNotFetchedAgain() {
+        loader = loader(WINDOW, 100, MEMO_TTL, this::upperCase);
+
+        assertThat(loader.load("a")).contains("A");
+        assertThat(loader.load("a")).contains("A");
+        assertThat(loader.loadAll(List.of("a", "b"))).containsOnlyKeys("a", "b");
+
+        assertThat(batches).containsExactly(Set.of("a"), Set.of("b"));
+    }
+
+    @Test
+    void keysAreFetchedAgainOnceTheMemoExpires() throws InterruptedException {
+        loader = loader(WINDOW, 100, Duration.ofMillis(20), this::upperCase);
+
+        loader.load("a");
+        Thread.sleep(50);
+        loader.load("a");
+
+        assertThat(batches).containsExactly(Set.of("a"), Set.of("a"));
+    }
+
+    @Test
+    void clearedKeysAreFetchedAgain() {
+        loader = loader(WINDOW, 100, MEMO_TTL, this::upperCase);
+
+        loader.load("a");
+        loader.clear("a");
+        loader.load("a");
+
+        assertThat(batches).containsExactly(Set.of("a"), Set.of("a"));
+    }
+
+    @Test
+    void missingKeysAreEmptyAndMemoized() {
+        loader = loader(WINDOW, 100, MEMO_TTL, keys -> Map.of("a", Optional.<String>empty()));
+
+        assertThat(loader.load("a")).isEmpty();
+        assertThat(loader.loadAll(List.of("a"))).containsEntry("a", Optional.empty());
+        assertThat(batches).hasSize(1);
+    }
+
+    @Test
+    void failedKeysAreLeftOutOfTheResultAndRetried() {
+        failing.add("b");
+        loader = loader(WINDOW, 100, MEMO_TTL, this::upperCase);
+
+        assertThat(loader.loadAll(List.of("a", "b"))).containsOnlyKeys("a");
+        assertThatThrownBy(() -> loader.load("b")).isInstanceOf(IllegalStateException.class);
+
+        failing.clear();
+        assertThat(loader.loadAll(List.of("a", "b"))).containsOnlyKeys("a", "b");
+        assertThat(batches).containsExactly(Set.of("a", "b"), Set.of("b"), Set.of("b"));
+    }
+
+    @Test
+    void failedBatchLeavesEveryKeyOutAndIsRetried() {
+        loader = loader(WINDOW, 100, MEMO_TTL, keys -> {
+            if (batches.size() == 1) {
+                throw new IllegalStateException("Downstream unavailable");
+            }
+            return upperCase(keys);
+        });
+
+        assertThat(loader.loadAll(List.of("a", "b"))).isEmpty();
+        assertThat(loader.loadAll(List.of("a", "b"))).containsOnlyKeys("a", "b");
+        assertThat(batches).hasSize(2);
+    }
+
+    @Test
+    void extraKeysReturnedByTheBatchPrimeTheMemo() {
+        loader = loader(WINDOW, 100, MEMO_TTL, keys -> {
+            Map<String, Optional<String>> results = upperCase(keys);
+            results.put("z", Optional.of("Z"));
+            return results;
+        });
+
+        loader.load("a");
+
+        assertThat(loader.load("z")).contains("Z");
+        assertThat(batches).containsExactly(Set.of("a"));
+    }
+
+    private BatchLoader<String, String> loader(Duration window, int maxBatchSize, Duration memoTtl,
+                                               Function<Set<String>, Map<String, Optional<String>>> batchFunction) {
+        return new BatchLoader<>("test", window, maxBatchSize, memoTtl, keys -> {
+            batches.add(keys);
+            return batchFunction.apply(keys);
+        });
+    }
+
+    // Leaves out the failing keys, like a batch function that could not resolve them
+    private Map<String, Optional<String>> upperCase(Set<String> keys) {
+        Map<String, Optional<String>> results = new HashMap<>();
+        keys.stream().filter(key -> !failing.contains(key)).forEach(key -> results.put(key, Optional.of(key.toUpperCase())));
+        return results;
+    }
+}
@@ -0,0 +1,100 @@
+package nl.optifit.backendservice.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStatisticTreeTest {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::score).thenComparing(Entry::id);
+
+    @Test
+    void randomInsertsAndRemovalsMatchSortedList() {
+        Random random = new Random(42);
+        OrderStatisticTree<Entry> tree = new OrderStatisticTree<>(ORDER);
+        List<Entry> expected = new ArrayList<>();
+
+        for (int i = 0; i < 2_000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                // Few distinct scores, so most entries tie on score and are ordered by id
+                Entry entry = new Entry(random.nextInt(20), "account-" + i);
+                tree.insert(entry);
+                expected.add(entry);
+            } else {
+                Entry entry = expected.remove(random.nextInt(expected.size()));
+                assertThat(tree.remove(entry)).isTrue();
+            }
+            expected.sort(ORDER);
+
+            if (i % 50 == 0) {
+                assertMatches(tree, expected, random);
+            }
+        }
+        assertMatches(tree, expected, random);
+    }
+
+    @Test
+    void rankCountsStrictlySmallerElements() {
+        OrderStatisticTree<Entry> tree = new OrderStatisticTree<>(ORDER);
+        tree.insert(new Entry(10, "b"));
+        tree.insert(new Entry(10, "d"));
+        tree.insert(new Entry(20, "a"));
+
+        assertThat(tree.rank(new Entry(10, "b"))).isZero();
+        assertThat(tree.rank(new Entry(10, "c"))).isEqualTo(1);
+        assertThat(tree.rank(new Entry(10, "d"))).isEqualTo(1);
+        assertThat(tree.rank(new Entry(20, "a"))).isEqualTo(2);
+        assertThat(tree.rank(new Entry(30, "a"))).isEqualTo(3);
+    }
+
+    @Test
+    void removeOfAbsentElementLeavesTreeUnchanged() {
+        OrderStatisticTree<Entry> tree = new OrderStatisticTree<>(ORDER);
+        tree.insert(new Entry(10, "a"));
+
+        assertThat(tree.remove(new Entry(10, "b"))).isFalse();
+        assertThat(tree.remove(new Entry(11, "a"))).isFalse();
+        assertThat(tree.size()).isEqualTo(1);
+    }
+
+    @Test
+    void rangeOutsideTheTreeIsEmpty() {
+        OrderStatisticTree<Entry> tree = new OrderStatisticTree<>(ORDER);
+        tree.insert(new Entry(1, "a"));
+        tree.insert(new Entry(2, "b"));
+
+        assertThat(tree.range(2, 10, false)).isEmpty();
+        assertThat(tree.range(-1, 10, true)).isEmpty();
+        assertThat(tree.range(0, 0, false)).isEmpty();
+        assertThat(tree.range(1, 10, true)).containsExactly(new Entry(1, "a"));
+    }
+
+    private static void assertMatches(OrderStatisticTree<Entry> tree, List<Entry> expected, Random random) {
+        assertThat(tree.size()).isEqualTo(expected.size());
+        for (int position = 0; position < expected.size(); position++) {
+            assertThat(tree.rank(expected.get(position))).isEqualTo(position);
+        }
+
+        List<Entry> descending = expected.reversed();
+        for (int i = 0; i < 20; i++) {
+            int from = random.nextInt(expected.size() + 2);
+            int count = 1 + random.nextInt(15);
+            int to = Math.min(expected.size(), from + count);
+            List<Entry> ascendingSlice = from < to ? expected.subList(from, to) : List.of();
+            List<Entry> descendingSlice = from < to ? descending.subList(from, to) : List.of();
+
+            assertThat(tree.range(from, count, false)).containsExactlyElementsOf(ascendingSlice);
+            assertThat(tree.range(from, count, true)).containsExactlyElementsOf(descendingSlice);
+        }
+        assertThat(tree.range(0, expected.size(), false)).containsExactlyElementsOf(expected);
+        assertThat(tree.range(0, expected.size(), true)).containsExactlyElementsOf(descending);
+    }
+
+    private record Entry(int score, String id) {
+    }
+}
@@ -0,0 +1,64 @@
+package nl.optifit.backendservice.utility;
+
+import jakarta.ws.rs.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionCursorTest {
+
+    @Test
+    void decodeReturnsTheEncodedPosition() {
+        SessionCursor cursor = new SessionCursor(Instant.parse("2025-03-14T09:30:00.123456Z"), UUID.randomUUID());
+
+        assertThat(SessionCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        for (int i = 0; i < 100; i++) {
+            String encoded = new SessionCursor(Instant.now().plusNanos(i), UUID.randomUUID()).encode();
+
+            assertThat(encoded).matches("[A-Za-z0-9_-]+");
+        }
+    }
+
+    @Test
+    void cursorsWithTheSameStartDifferOnlyByTheirId() {
+        Instant sessionStart = Instant.parse("2025-03-14T09:30:00Z");
+        SessionCursor first = new SessionCursor(sessionStart, UUID.randomUUID());
+        SessionCursor second = new SessionCursor(sessionStart, UUID.randomUUID());
+
+        assertThat(first.encode()).isNotEqualTo(second.encode());
+        assertThat(SessionCursor.decode(second.encode()).sessionStart()).isEqualTo(sessionStart);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "not base64!",
+            "2025-03-14T09:30:00Z",
+            "2025-03-14T09:30:00Z|not-a-uuid",
+            "yesterday|3f2504e0-4f89-11d3-9a0c-0305e82c3301",
+            "|3f2504e0-4f89-11d3-9a0c-0305e82c3301"
+    })
+    void malformedCursorIsABadRequest(String raw) {
+        String cursor = raw.equals("not base64!") ? raw : encode(raw);
+
+        assertThatThrownBy(() -> SessionCursor.decode(cursor))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Invalid cursor");
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}